@@ -0,0 +1,111 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+
+/**
+ * An edit script turning a first sequence into a second one: the removals,
+ * insertions, substitutions and swaps of an optimal alignment, in the order
+ * in which they apply. Kept symbols are not listed.
+ * <p>
+ * Each operation is packed into a {@code long}: the operation in the two top
+ * bits, then 31 bits for its position in the first sequence and 31 bits for
+ * its position in the second one, as in
+ * {@code operacao << 62 | posicaoNaPrimeira << 31 | posicaoNaSegunda}.
+ * Positions count symbols, so they are chars, code points or grapheme
+ * clusters depending on the {@link Unidade} of the calculator.
+ * <ul>
+ * <li>{@link #REMOCAO}: the symbol of the first sequence at its position is
+ * removed; its position in the second sequence is that of the next symbol
+ * written.</li>
+ * <li>{@link #INSERCAO}: the symbol of the second sequence at its position is
+ * inserted; its position in the first sequence is that of the next symbol
+ * read.</li>
+ * <li>{@link #SUBSTITUICAO}: one symbol replaces the other.</li>
+ * <li>{@link #TROCA}: the symbol at its position in the first sequence and
+ * the next symbol of the first sequence that is not removed are swapped into
+ * the symbol at its position in the second sequence and the next one that is
+ * not inserted. The symbols removed and inserted between them are listed
+ * right after the swap.</li>
+ * </ul>
+ */
+public final class Alinhamento {
+
+    public static final int REMOCAO = 0;
+    public static final int INSERCAO = 1;
+    public static final int SUBSTITUICAO = 2;
+    public static final int TROCA = 3;
+
+    private static final int BITS_DA_POSICAO = 31;
+    private static final long MASCARA_DA_POSICAO = (1L << BITS_DA_POSICAO) - 1;
+
+    private final long[] operacoes;
+    private final int custo;
+
+    Alinhamento(long[] operacoes, int quantidade, int custo) {
+        this.operacoes = Arrays.copyOf(operacoes, quantidade);
+        this.custo = custo;
+    }
+
+    static long codificar(int operacao, int posicaoNaPrimeira, int posicaoNaSegunda) {
+        return (long) operacao << (2 * BITS_DA_POSICAO)
+                | (long) posicaoNaPrimeira << BITS_DA_POSICAO
+                | posicaoNaSegunda;
+    }
+
+    /**
+     * The total cost of the operations, which is the Lowrance-Wagner
+     * distance between the sequences. With unit costs it equals
+     * {@link DamerauLevenshtein#calcularDistancia(String, String)}; with
+     * other weights that distance may differ from it (see
+     * {@link DamerauLevenshtein#calcularAlinhamentoLowranceWagner(String, String)}).
+     */
+    public int custo() {
+        return custo;
+    }
+
+    /**
+     * The number of operations.
+     */
+    public int tamanho() {
+        return operacoes.length;
+    }
+
+    /**
+     * The k-th operation: {@link #REMOCAO}, {@link #INSERCAO},
+     * {@link #SUBSTITUICAO} or {@link #TROCA}.
+     */
+    public int operacao(int k) {
+        return (int) (operacoes[k] >>> (2 * BITS_DA_POSICAO));
+    }
+
+    /**
+     * The position of the k-th operation in the first sequence.
+     */
+    public int posicaoNaPrimeira(int k) {
+        return (int) ((operacoes[k] >>> BITS_DA_POSICAO) & MASCARA_DA_POSICAO);
+    }
+
+    /**
+     * The position of the k-th operation in the second sequence.
+     */
+    public int posicaoNaSegunda(int k) {
+        return (int) (operacoes[k] & MASCARA_DA_POSICAO);
+    }
+
+    /**
+     * A copy of the packed operations.
+     */
+    public long[] operacoes() {
+        return operacoes.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder("custo ").append(custo).append(':');
+        for (int k = 0; k < operacoes.length; k++) {
+            texto.append(' ').append("RIST".charAt(operacao(k)))
+                    .append(posicaoNaPrimeira(k)).append('/').append(posicaoNaSegunda(k));
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,394 @@
+package br.com.bibiteix.damerau;
+
+/**
+ * Optimal edit script under the {@link DamerauLevenshtein} costs, found in
+ * linear space by divide and conquer, in the manner of Hirschberg.
+ * <p>
+ * The first sequence is split at its middle row. A forward pass computes the
+ * last row of the top half and a backward pass, over both sequences reversed,
+ * the first row of the bottom half, each keeping only the rows the swap term
+ * reads (one per character, as in
+ * {@link DamerauLevenshtein#calcularDistanciaEmEspacoLinear}). An optimal
+ * script either crosses the middle between two rows, at the column where the
+ * sum of both rows is smallest, or inside a swap whose first character is
+ * above the middle and whose second is below it. Such a swap can be taken with
+ * its first character at the last occurrence above the middle, which is
+ * exactly the row the forward pass keeps, so the backward pass prices every
+ * one of them as it goes. Both halves are then solved the same way, down to
+ * pieces small enough for the whole matrix.
+ * <p>
+ * The recurrence is Lowrance and Wagner's without the special case of the
+ * first row and column (see {@link DamerauLevenshtein}), so every cost it
+ * finds is the cost of an actual script.
+ */
+final class AlinhamentoEmEspacoLinear {
+
+    // pedaços com até tantas células são resolvidos com a matriz inteira
+    private static final int CELULAS_DA_MATRIZ = 1 << 16;
+
+    private final int[] primeira;
+    private final int[] segunda;
+    private final int custoRemocao;
+    private final int custoInsercao;
+    private final int custoSubstituicao;
+    private final int custoTroca;
+    private final Rascunho rascunho;
+
+    // cada passada usa as suas linhas; as da passada direta são lidas pela inversa
+    private final int linhasPorPassada;
+    private final int[][] linhas;
+    private final int[] linhasLivres;
+    // linha salva para cada caracter: -1 ausente da segunda sequência, -2 ainda sem linha
+    private final TabelaDeIndices linhaSalvaDireta = new TabelaDeIndices(-1);
+    private final TabelaDeIndices ultimaDireta = new TabelaDeIndices(-1);
+    private final TabelaDeIndices linhaSalvaInversa = new TabelaDeIndices(-1);
+    private final TabelaDeIndices ultimaInversa = new TabelaDeIndices(-1);
+
+    // a melhor troca que atravessa o meio, achada pela passada inversa
+    private int custoDaTravessia;
+    private int inicioDaTravessiaNaPrimeira;
+    private int inicioDaTravessiaNaSegunda;
+    private int fimDaTravessiaNaPrimeira;
+    private int fimDaTravessiaNaSegunda;
+
+    private long[] operacoes = new long[16];
+    private int quantidade;
+    private int custo;
+
+    private AlinhamentoEmEspacoLinear(int[] primeira, int[] segunda, int tamanhoSegunda,
+            int custoRemocao, int custoInsercao, int custoSubstituicao, int custoTroca,
+            Workspace workspace) {
+        this.primeira = primeira;
+        this.segunda = segunda;
+        this.custoRemocao = custoRemocao;
+        this.custoInsercao = custoInsercao;
+        this.custoSubstituicao = custoSubstituicao;
+        this.custoTroca = custoTroca;
+        this.rascunho = workspace.rascunho(Rascunho.class, Rascunho::new);
+        int distintos = 0;
+        for (int j = 0; j < tamanhoSegunda; j++) {
+            if (linhaSalvaDireta.get(segunda[j]) == -1) {
+                linhaSalvaDireta.put(segunda[j], -2);
+                distintos++;
+            }
+        }
+        // anterior, atual, uma salva por caracter e a que está sendo devolvida
+        this.linhasPorPassada = distintos + 3;
+        this.linhas = workspace.linhas(2 * linhasPorPassada, tamanhoSegunda + 1);
+        this.linhasLivres = new int[linhasPorPassada];
+    }
+
+    static Alinhamento alinhar(int[] primeira, int tamanhoPrimeira, int[] segunda, int tamanhoSegunda,
+            int custoRemocao, int custoInsercao, int custoSubstituicao, int custoTroca,
+            Workspace workspace) {
+        AlinhamentoEmEspacoLinear alinhamento = new AlinhamentoEmEspacoLinear(primeira, segunda,
+                tamanhoSegunda, custoRemocao, custoInsercao, custoSubstituicao, custoTroca, workspace);
+        alinhamento.alinhar(0, tamanhoPrimeira, 0, tamanhoSegunda);
+        return new Alinhamento(alinhamento.operacoes, alinhamento.quantidade, alinhamento.custo);
+    }
+
+    /**
+     * Append the script from {@code primeira[inicioPrimeira, fimPrimeira)} to
+     * {@code segunda[inicioSegunda, fimSegunda)}.
+     */
+    private void alinhar(int inicioPrimeira, int fimPrimeira, int inicioSegunda, int fimSegunda) {
+        int tamanhoPrimeira = fimPrimeira - inicioPrimeira;
+        int tamanhoSegunda = fimSegunda - inicioSegunda;
+        if (tamanhoPrimeira <= 1 || tamanhoSegunda <= 1
+                || (long) (tamanhoPrimeira + 1) * (tamanhoSegunda + 1) <= CELULAS_DA_MATRIZ) {
+            alinharPelaMatriz(inicioPrimeira, fimPrimeira, inicioSegunda, fimSegunda);
+            return;
+        }
+        int meio = inicioPrimeira + tamanhoPrimeira / 2;
+        int[] linhaDoMeio = linhas[percorrer(false, inicioPrimeira, meio, inicioSegunda, fimSegunda,
+                inicioPrimeira)];
+        custoDaTravessia = Integer.MAX_VALUE;
+        int[] linhaInversa = linhas[percorrer(true, meio, fimPrimeira, inicioSegunda, fimSegunda,
+                inicioPrimeira)];
+
+        int melhorCorte = 0;
+        int custoDoCorte = Integer.MAX_VALUE;
+        for (int k = 0; k <= tamanhoSegunda; k++) {
+            int custoDoCaminho = linhaDoMeio[k] + linhaInversa[tamanhoSegunda - k];
+            if (custoDoCaminho < custoDoCorte) {
+                custoDoCorte = custoDoCaminho;
+                melhorCorte = k;
+            }
+        }
+        if (custoDaTravessia < custoDoCorte) {
+            // as recursões reaproveitam os campos da travessia
+            int s = inicioDaTravessiaNaPrimeira;
+            int t = inicioDaTravessiaNaSegunda;
+            int e = fimDaTravessiaNaPrimeira;
+            int u = fimDaTravessiaNaSegunda;
+            alinhar(inicioPrimeira, s, inicioSegunda, t);
+            adicionarTroca(s, t, e, u);
+            alinhar(e + 1, fimPrimeira, u + 1, fimSegunda);
+        } else {
+            alinhar(inicioPrimeira, meio, inicioSegunda, inicioSegunda + melhorCorte);
+            alinhar(meio, fimPrimeira, inicioSegunda + melhorCorte, fimSegunda);
+        }
+    }
+
+    /**
+     * Run the recurrence over {@code primeira[inicioPrimeira, fimPrimeira)}
+     * and {@code segunda[inicioSegunda, fimSegunda)}, or over both reversed,
+     * and return the index of the row holding the last row. Going backwards,
+     * every swap crossing {@code inicioPrimeira} is priced against the rows
+     * the forward pass, which started at {@code inicioDaPassadaDireta}, left.
+     */
+    private int percorrer(boolean inversa, int inicioPrimeira, int fimPrimeira, int inicioSegunda,
+            int fimSegunda, int inicioDaPassadaDireta) {
+        int tamanhoPrimeira = fimPrimeira - inicioPrimeira;
+        int tamanhoSegunda = fimSegunda - inicioSegunda;
+        TabelaDeIndices linhaSalva = inversa ? linhaSalvaInversa : linhaSalvaDireta;
+        TabelaDeIndices ultima = inversa ? ultimaInversa : ultimaDireta;
+        int[] colunas;
+        int primeiraColuna;
+        if (inversa) {
+            colunas = rascunho.segundaInvertida = Workspace.comEspaco(rascunho.segundaInvertida,
+                    tamanhoSegunda);
+            for (int j = 0; j < tamanhoSegunda; j++) {
+                colunas[j] = segunda[fimSegunda - 1 - j];
+            }
+            primeiraColuna = 0;
+        } else {
+            colunas = segunda;
+            primeiraColuna = inicioSegunda;
+        }
+        linhaSalva.limpar();
+        ultima.limpar();
+        for (int j = 0; j < tamanhoSegunda; j++) {
+            linhaSalva.put(colunas[primeiraColuna + j], -2);
+        }
+        int primeiraLinha = inversa ? linhasPorPassada : 0;
+        int livres = 0;
+        for (int r = linhasPorPassada - 1; r >= 0; r--) {
+            linhasLivres[livres++] = primeiraLinha + r;
+        }
+
+        int anterior = linhasLivres[--livres];
+        int atual = linhasLivres[--livres];
+        int[] linhaAnterior = linhas[anterior];
+        for (int j = 0; j <= tamanhoSegunda; j++) {
+            linhaAnterior[j] = j * custoInsercao;
+        }
+        if (inversa) {
+            avaliarTravessias(fimPrimeira - 1, linhaAnterior, inicioSegunda, fimSegunda,
+                    inicioDaPassadaDireta);
+        }
+        for (int i = 1; i <= tamanhoPrimeira; i++) {
+            int caracter = inversa ? primeira[fimPrimeira - i] : primeira[inicioPrimeira + i - 1];
+            int[] linhaAtual = linhas[atual];
+            linhaAtual[0] = i * custoRemocao;
+            // última coluna antes de j - 1 cujo caracter é o desta linha
+            int jTroca = -1;
+            for (int j = 1; j <= tamanhoSegunda; j++) {
+                int caracterDaColuna = colunas[primeiraColuna + j - 1];
+                int distancia = Math.min(linhaAnterior[j] + custoRemocao, linhaAtual[j - 1] + custoInsercao);
+                distancia = Math.min(distancia, linhaAnterior[j - 1]
+                        + (caracter == caracterDaColuna ? 0 : custoSubstituicao));
+                if (jTroca >= 0) {
+                    int iTroca = ultima.get(caracterDaColuna);
+                    if (iTroca >= 0) {
+                        distancia = Math.min(distancia, linhas[linhaSalva.get(caracterDaColuna)][jTroca]
+                                + (i - iTroca - 2) * custoRemocao + (j - jTroca - 2) * custoInsercao
+                                + custoTroca);
+                    }
+                }
+                linhaAtual[j] = distancia;
+                if (caracter == caracterDaColuna) {
+                    jTroca = j - 1;
+                }
+            }
+
+            int salva = linhaSalva.get(caracter);
+            int livre;
+            if (salva == -1) {
+                // caracter nunca consultado pela troca: basta alternar as linhas
+                livre = anterior;
+            } else {
+                ultima.put(caracter, i - 1);
+                linhaSalva.put(caracter, anterior);
+                livre = salva >= 0 ? salva : linhasLivres[--livres];
+            }
+            anterior = atual;
+            atual = livre;
+            linhaAnterior = linhaAtual;
+            if (inversa && i < tamanhoPrimeira) {
+                avaliarTravessias(fimPrimeira - 1 - i, linhaAnterior, inicioSegunda, fimSegunda,
+                        inicioDaPassadaDireta);
+            }
+        }
+        return anterior;
+    }
+
+    /**
+     * Price every swap whose second character is {@code primeira[fim]},
+     * given the row of the backward pass for the suffix after it, and keep
+     * the cheapest.
+     */
+    private void avaliarTravessias(int fim, int[] linhaInversa, int inicioSegunda, int fimSegunda,
+            int inicioDaPassadaDireta) {
+        int caracterDoFim = primeira[fim];
+        // última posição da segunda sequência, antes de u, com o caracter do fim
+        int t = -1;
+        for (int u = inicioSegunda; u < fimSegunda; u++) {
+            int caracter = segunda[u];
+            if (t >= 0) {
+                int iTroca = ultimaDireta.get(caracter);
+                if (iTroca >= 0) {
+                    int s = inicioDaPassadaDireta + iTroca;
+                    int custoDaTroca = linhas[linhaSalvaDireta.get(caracter)][t - inicioSegunda]
+                            + (fim - s - 1) * custoRemocao + (u - t - 1) * custoInsercao + custoTroca
+                            + linhaInversa[fimSegunda - u - 1];
+                    if (custoDaTroca < custoDaTravessia) {
+                        custoDaTravessia = custoDaTroca;
+                        inicioDaTravessiaNaPrimeira = s;
+                        inicioDaTravessiaNaSegunda = t;
+                        fimDaTravessiaNaPrimeira = fim;
+                        fimDaTravessiaNaSegunda = u;
+                    }
+                }
+            }
+            if (caracter == caracterDoFim) {
+                t = u;
+            }
+        }
+    }
+
+    /**
+     * Solve a small piece with the whole matrix and trace the script back.
+     */
+    private void alinharPelaMatriz(int inicioPrimeira, int fimPrimeira, int inicioSegunda,
+            int fimSegunda) {
+        int tamanhoPrimeira = fimPrimeira - inicioPrimeira;
+        int tamanhoSegunda = fimSegunda - inicioSegunda;
+        int largura = tamanhoSegunda + 1;
+        int[] matriz = rascunho.matriz = Workspace.comEspaco(rascunho.matriz,
+                (tamanhoPrimeira + 1) * largura);
+        TabelaDeIndices ultima = ultimaDireta;
+        ultima.limpar();
+        for (int j = 0; j <= tamanhoSegunda; j++) {
+            matriz[j] = j * custoInsercao;
+        }
+        for (int i = 1; i <= tamanhoPrimeira; i++) {
+            int caracter = primeira[inicioPrimeira + i - 1];
+            int linha = i * largura;
+            matriz[linha] = i * custoRemocao;
+            int jTroca = -1;
+            for (int j = 1; j <= tamanhoSegunda; j++) {
+                int caracterDaColuna = segunda[inicioSegunda + j - 1];
+                int distancia = Math.min(matriz[linha - largura + j] + custoRemocao,
+                        matriz[linha + j - 1] + custoInsercao);
+                distancia = Math.min(distancia, matriz[linha - largura + j - 1]
+                        + (caracter == caracterDaColuna ? 0 : custoSubstituicao));
+                int iTroca = ultima.get(caracterDaColuna);
+                if (jTroca >= 0 && iTroca >= 0) {
+                    distancia = Math.min(distancia, matriz[iTroca * largura + jTroca]
+                            + (i - iTroca - 2) * custoRemocao + (j - jTroca - 2) * custoInsercao
+                            + custoTroca);
+                }
+                matriz[linha + j] = distancia;
+                if (caracter == caracterDaColuna) {
+                    jTroca = j - 1;
+                }
+            }
+            ultima.put(caracter, i - 1);
+        }
+
+        // o caminho é percorrido do fim para o começo, e as operações invertidas no final
+        int inicioDoTrecho = quantidade;
+        int i = tamanhoPrimeira;
+        int j = tamanhoSegunda;
+        while (i > 0 || j > 0) {
+            int valor = matriz[i * largura + j];
+            if (i > 0 && j > 0) {
+                int caracter = primeira[inicioPrimeira + i - 1];
+                int caracterDaColuna = segunda[inicioSegunda + j - 1];
+                int diagonal = matriz[(i - 1) * largura + j - 1];
+                if (caracter == caracterDaColuna && valor == diagonal) {
+                    i--;
+                    j--;
+                    continue;
+                }
+                if (caracter != caracterDaColuna && valor == diagonal + custoSubstituicao) {
+                    adicionar(Alinhamento.SUBSTITUICAO, inicioPrimeira + i - 1, inicioSegunda + j - 1,
+                            custoSubstituicao);
+                    i--;
+                    j--;
+                    continue;
+                }
+            }
+            if (i > 0 && valor == matriz[(i - 1) * largura + j] + custoRemocao) {
+                adicionar(Alinhamento.REMOCAO, inicioPrimeira + i - 1, inicioSegunda + j, custoRemocao);
+                i--;
+                continue;
+            }
+            if (j > 0 && valor == matriz[i * largura + j - 1] + custoInsercao) {
+                adicionar(Alinhamento.INSERCAO, inicioPrimeira + i, inicioSegunda + j - 1, custoInsercao);
+                j--;
+                continue;
+            }
+            // só resta a troca: o caracter da linha antes de j e o da coluna antes de i
+            int iTroca = i - 2;
+            while (primeira[inicioPrimeira + iTroca] != segunda[inicioSegunda + j - 1]) {
+                iTroca--;
+            }
+            int jTroca = j - 2;
+            while (segunda[inicioSegunda + jTroca] != primeira[inicioPrimeira + i - 1]) {
+                jTroca--;
+            }
+            int s = inicioPrimeira + iTroca;
+            int t = inicioSegunda + jTroca;
+            int e = inicioPrimeira + i - 1;
+            int u = inicioSegunda + j - 1;
+            for (int y = u - 1; y > t; y--) {
+                adicionar(Alinhamento.INSERCAO, s + 1, y, custoInsercao);
+            }
+            for (int x = e - 1; x > s; x--) {
+                adicionar(Alinhamento.REMOCAO, x, t + 1, custoRemocao);
+            }
+            adicionar(Alinhamento.TROCA, s, t, custoTroca);
+            i = iTroca;
+            j = jTroca;
+        }
+        for (int a = inicioDoTrecho, b = quantidade - 1; a < b; a++, b--) {
+            long operacao = operacoes[a];
+            operacoes[a] = operacoes[b];
+            operacoes[b] = operacao;
+        }
+    }
+
+    /**
+     * Append a swap of {@code primeira[s]} and {@code primeira[e]} into
+     * {@code segunda[u]} and {@code segunda[t]}, with everything between them
+     * removed or inserted.
+     */
+    private void adicionarTroca(int s, int t, int e, int u) {
+        adicionar(Alinhamento.TROCA, s, t, custoTroca);
+        for (int x = s + 1; x < e; x++) {
+            adicionar(Alinhamento.REMOCAO, x, t + 1, custoRemocao);
+        }
+        for (int y = t + 1; y < u; y++) {
+            adicionar(Alinhamento.INSERCAO, s + 1, y, custoInsercao);
+        }
+    }
+
+    private void adicionar(int operacao, int posicaoNaPrimeira, int posicaoNaSegunda, int custoDaOperacao) {
+        if (quantidade == operacoes.length) {
+            operacoes = java.util.Arrays.copyOf(operacoes, 2 * quantidade);
+        }
+        operacoes[quantidade++] = Alinhamento.codificar(operacao, posicaoNaPrimeira, posicaoNaSegunda);
+        custo += custoDaOperacao;
+    }
+
+    /**
+     * The buffers kept in the workspace between alignments.
+     */
+    private static final class Rascunho {
+
+        int[] segundaInvertida = new int[0];
+        int[] matriz = new int[0];
+    }
+}
@@ -1,3 +1,4 @@
+package br.com.bibiteix.damerau;
 
 public class App {
 
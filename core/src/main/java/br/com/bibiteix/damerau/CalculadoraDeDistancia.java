@@ -0,0 +1,52 @@
+package br.com.bibiteix.damerau;
+
+import java.util.List;
+
+/**
+ * An edit distance between strings, as seen by the algorithms that compute
+ * many distances at once, such as {@link DistanceMatrix}.
+ * <p>
+ * Implementations must be safe to call from several threads at once, as long
+ * as each thread passes its own {@link Workspace}.
+ */
+public interface CalculadoraDeDistancia {
+
+    /**
+     * The distance from the first string to the second one.
+     */
+    int distancia(String primeiraString, String segundaString, Workspace workspace);
+
+    /**
+     * The distance from the first string to the second one, or -1 as soon as
+     * it is known to be greater than {@code maxDistancia}.
+     */
+    int distancia(String primeiraString, String segundaString, int maxDistancia, Workspace workspace);
+
+    /**
+     * The distance from a query to every candidate, written into
+     * {@code resultado} in the order of the candidates.
+     */
+    void distancias(String consulta, List<String> candidatos, int[] resultado, Workspace workspace);
+
+    /**
+     * Whether the distance from a to b is always the distance from b to a.
+     */
+    boolean simetrica();
+
+    /**
+     * An upper bound of the distance between strings of the given lengths.
+     */
+    long distanciaMaxima(int tamanhoPrimeira, int tamanhoSegunda);
+
+    /**
+     * The cost of the cheapest edit operation, so that a distance d allows at
+     * most {@code d / menorCustoDeOperacao()} operations.
+     */
+    int menorCustoDeOperacao();
+
+    /**
+     * What counts as one character. Structures that look at the characters
+     * themselves must split the strings the same way.
+     */
+    Unidade unidade();
+}
@@ -0,0 +1,53 @@
+package br.com.bibiteix.damerau;
+
+/**
+ * A dictionary term found by a fuzzy search, with its distance to the query.
+ * <p>
+ * Correspondences are ordered by distance, and then by term, so that the
+ * results of a search are listed from the closest term on.
+ */
+public final class Correspondencia implements Comparable<Correspondencia> {
+
+    private final String termo;
+    private final int distancia;
+
+    public Correspondencia(String termo, int distancia) {
+        this.termo = termo;
+        this.distancia = distancia;
+    }
+
+    public String getTermo() {
+        return termo;
+    }
+
+    public int getDistancia() {
+        return distancia;
+    }
+
+    @Override
+    public int compareTo(Correspondencia outra) {
+        if (distancia != outra.distancia) {
+            return Integer.compare(distancia, outra.distancia);
+        }
+        return termo.compareTo(outra.termo);
+    }
+
+    @Override
+    public boolean equals(Object objeto) {
+        if (!(objeto instanceof Correspondencia)) {
+            return false;
+        }
+        Correspondencia outra = (Correspondencia) objeto;
+        return distancia == outra.distancia && termo.equals(outra.termo);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * termo.hashCode() + distancia;
+    }
+
+    @Override
+    public String toString() {
+        return termo + " (" + distancia + ")";
+    }
+}
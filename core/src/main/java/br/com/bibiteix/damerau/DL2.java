@@ -0,0 +1,674 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of Damerau-Levenshtein distance with transposition (also
+ * sometimes calls unrestricted Damerau-Levenshtein distance).
+ * It is the minimum number of operations needed to transform one string into
+ * the other, where an operation is defined as an insertion, deletion, or
+ * substitution of a single character, or a transposition of two adjacent
+ * characters.
+ * It does respect triangle inequality, and is thus a metric distance.
+ *
+ * This is not to be confused with the optimal string alignment distance, which
+ * is an extension where no substring can be edited more than once.
+ *
+ * Characters are UTF-16 chars unless another {@link Unidade} is given.
+ *
+ * @author Thibault Debatty
+ */
+public class DL2 implements CalculadoraDeDistancia {
+
+    private final Unidade unidade;
+
+    /**
+     * Distance between strings of UTF-16 chars.
+     */
+    public DL2() {
+        this(Unidade.UTF16);
+    }
+
+    /**
+     * Distance between strings whose characters are the given unit: UTF-16
+     * chars, code points or grapheme clusters.
+     * @param unidade
+     */
+    public DL2(Unidade unidade) {
+        this.unidade = unidade;
+    }
+
+    /**
+     * Compute the distance between strings: the minimum number of operations
+     * needed to transform one string into the other (insertion, deletion,
+     * substitution of a single character, or a transposition of two adjacent
+     * characters).
+     * The bit-parallel restricted distance is computed first: it is the answer
+     * when it is at most 2, and otherwise an upper bound that limits the band
+     * of H that has to be filled. A common prefix and suffix never change the
+     * distance, so they are left out first.
+     * @param primeiraString
+     * @param segundaString
+     * @return
+     */
+    public double calcularDistancia(String primeiraString, String segundaString) {
+        return calcularDistancia(primeiraString, segundaString, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Compute the distance between strings, using the given workspace for all
+     * scratch memory.
+     * @param primeiraString
+     * @param segundaString
+     * @param workspace
+     * @return
+     */
+    public double calcularDistancia(String primeiraString, String segundaString, Workspace workspace) {
+        workspace.carregar(primeiraString, segundaString, true, 0, unidade);
+        return calcularCarregadas(workspace);
+    }
+
+    /**
+     * Compute the distance between strings, giving up as soon as it is known
+     * to be greater than maxDistancia.
+     * Only the cells of H within maxDistancia of the main diagonal are filled,
+     * and the computation stops at the first row whose cells all exceed the
+     * limit. A transposition that could still pay off never reaches more than
+     * maxDistancia rows back, so only a ring of maxDistancia + 2 rows of H is
+     * kept.
+     * Before that, the bit-parallel restricted distance answers directly when
+     * it is at most 2, rejects the pair when two thirds of it already exceed
+     * the limit, and otherwise narrows the limit.
+     * @param primeiraString
+     * @param segundaString
+     * @param maxDistancia the largest distance of interest
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(String primeiraString, String segundaString, int maxDistancia) {
+        return calcularDistancia(primeiraString, segundaString, maxDistancia, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(String, String, int)}, using the given
+     * workspace for all scratch memory.
+     * @param primeiraString
+     * @param segundaString
+     * @param maxDistancia the largest distance of interest
+     * @param workspace
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(String primeiraString, String segundaString, int maxDistancia,
+            Workspace workspace) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        workspace.carregar(primeiraString, segundaString, true, 0, unidade);
+        return calcularCarregadas(maxDistancia, workspace);
+    }
+
+    /**
+     * Compute the distance between two sequences of int tokens, such as word
+     * or symbol ids, exactly as between strings. Tokens are only compared for
+     * equality, and vocabularies of any size are handled without boxing.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @return
+     */
+    public double calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia) {
+        return calcularDistancia(primeiraSequencia, segundaSequencia, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(int[], int[])}, using the given
+     * workspace for all scratch memory.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param workspace
+     * @return
+     */
+    public double calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia, Workspace workspace) {
+        workspace.carregar(primeiraSequencia, segundaSequencia, true, 0);
+        return calcularCarregadas(workspace);
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(String, String, int)}, for sequences
+     * of int tokens.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param maxDistancia the largest distance of interest
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia, int maxDistancia) {
+        return calcularDistancia(primeiraSequencia, segundaSequencia, maxDistancia, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(int[], int[], int)}, using the given
+     * workspace for all scratch memory.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param maxDistancia the largest distance of interest
+     * @param workspace
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia, int maxDistancia,
+            Workspace workspace) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        workspace.carregar(primeiraSequencia, segundaSequencia, true, 0);
+        return calcularCarregadas(maxDistancia, workspace);
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(int[], int[])}, for sequences of
+     * long tokens. Distinct tokens are renumbered densely first.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @return
+     */
+    public double calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia) {
+        return calcularDistancia(primeiraSequencia, segundaSequencia, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(long[], long[])}, using the given
+     * workspace for all scratch memory.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param workspace
+     * @return
+     */
+    public double calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia, Workspace workspace) {
+        workspace.carregar(primeiraSequencia, segundaSequencia, true, 0);
+        return calcularCarregadas(workspace);
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(int[], int[], int)}, for sequences
+     * of long tokens.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param maxDistancia the largest distance of interest
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia, int maxDistancia) {
+        return calcularDistancia(primeiraSequencia, segundaSequencia, maxDistancia, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(long[], long[], int)}, using the given
+     * workspace for all scratch memory.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param maxDistancia the largest distance of interest
+     * @param workspace
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia, int maxDistancia,
+            Workspace workspace) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        workspace.carregar(primeiraSequencia, segundaSequencia, true, 0);
+        return calcularCarregadas(maxDistancia, workspace);
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(int[], int[])}, for sequences of
+     * unsigned bytes.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @return
+     */
+    public double calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia) {
+        return calcularDistancia(primeiraSequencia, segundaSequencia, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(byte[], byte[])}, using the given
+     * workspace for all scratch memory.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param workspace
+     * @return
+     */
+    public double calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia, Workspace workspace) {
+        workspace.carregar(primeiraSequencia, segundaSequencia, true, 0);
+        return calcularCarregadas(workspace);
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(int[], int[], int)}, for sequences
+     * of unsigned bytes.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param maxDistancia the largest distance of interest
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia, int maxDistancia) {
+        return calcularDistancia(primeiraSequencia, segundaSequencia, maxDistancia, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancia(byte[], byte[], int)}, using the given
+     * workspace for all scratch memory.
+     * @param primeiraSequencia
+     * @param segundaSequencia
+     * @param maxDistancia the largest distance of interest
+     * @param workspace
+     * @return the distance, or -1 if it is greater than maxDistancia
+     */
+    public double calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia, int maxDistancia,
+            Workspace workspace) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        workspace.carregar(primeiraSequencia, segundaSequencia, true, 0);
+        return calcularCarregadas(maxDistancia, workspace);
+    }
+
+    /**
+     * The distance divided by the length of the longer string, which is the
+     * largest distance two strings of those lengths can have: 0 for equal
+     * strings, 1 for strings with nothing in common.
+     * @param primeiraString
+     * @param segundaString
+     * @return
+     */
+    public double calcularDistanciaNormalizada(String primeiraString, String segundaString) {
+        return calcularDistanciaNormalizada(primeiraString, segundaString, 1, Workspace.daThreadAtual());
+    }
+
+    /**
+     * The normalized distance, or -1 as soon as it is known to be greater than
+     * maxDistanciaNormalizada. The limit becomes the maxDistancia of
+     * {@link #calcularDistancia(String, String, int)}, so far apart strings are
+     * rejected without filling H.
+     * @param primeiraString
+     * @param segundaString
+     * @param maxDistanciaNormalizada the largest normalized distance of interest
+     * @return the normalized distance, or -1 if it is greater than maxDistanciaNormalizada
+     */
+    public double calcularDistanciaNormalizada(String primeiraString, String segundaString,
+            double maxDistanciaNormalizada) {
+        return calcularDistanciaNormalizada(primeiraString, segundaString, maxDistanciaNormalizada,
+                Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistanciaNormalizada(String, String, double)},
+     * using the given workspace for all scratch memory.
+     * @param primeiraString
+     * @param segundaString
+     * @param maxDistanciaNormalizada the largest normalized distance of interest
+     * @param workspace
+     * @return the normalized distance, or -1 if it is greater than maxDistanciaNormalizada
+     */
+    public double calcularDistanciaNormalizada(String primeiraString, String segundaString,
+            double maxDistanciaNormalizada, Workspace workspace) {
+        double normalizada = calcularNormalizada(primeiraString, segundaString, maxDistanciaNormalizada,
+                workspace);
+        return normalizada <= maxDistanciaNormalizada ? normalizada : -1;
+    }
+
+    /**
+     * One minus the normalized distance: 1 for equal strings, 0 for strings
+     * with nothing in common.
+     * @param primeiraString
+     * @param segundaString
+     * @return
+     */
+    public double calcularSimilaridade(String primeiraString, String segundaString) {
+        return calcularSimilaridade(primeiraString, segundaString, 0, Workspace.daThreadAtual());
+    }
+
+    /**
+     * The similarity, or -1 as soon as it is known to be lower than
+     * similaridadeMinima, which becomes the maxDistancia of
+     * {@link #calcularDistancia(String, String, int)}.
+     * @param primeiraString
+     * @param segundaString
+     * @param similaridadeMinima the lowest similarity of interest
+     * @return the similarity, or -1 if it is lower than similaridadeMinima
+     */
+    public double calcularSimilaridade(String primeiraString, String segundaString,
+            double similaridadeMinima) {
+        return calcularSimilaridade(primeiraString, segundaString, similaridadeMinima,
+                Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularSimilaridade(String, String, double)}, using the
+     * given workspace for all scratch memory.
+     * @param primeiraString
+     * @param segundaString
+     * @param similaridadeMinima the lowest similarity of interest
+     * @param workspace
+     * @return the similarity, or -1 if it is lower than similaridadeMinima
+     */
+    public double calcularSimilaridade(String primeiraString, String segundaString,
+            double similaridadeMinima, Workspace workspace) {
+        double normalizada = calcularNormalizada(primeiraString, segundaString, 1 - similaridadeMinima,
+                workspace);
+        if (normalizada < 0) {
+            return -1;
+        }
+        double similaridade = 1 - normalizada;
+        return similaridade >= similaridadeMinima ? similaridade : -1;
+    }
+
+    /**
+     * The normalized distance, or -1 if the distance is certainly greater than
+     * maxDistanciaNormalizada; values a rounding error above the limit are
+     * returned for the caller to compare.
+     */
+    private double calcularNormalizada(String primeiraString, String segundaString,
+            double maxDistanciaNormalizada, Workspace workspace) {
+        workspace.carregar(primeiraString, segundaString, true, 0, unidade);
+        int divisor = Math.max(workspace.tamanhoPrimeira, workspace.tamanhoSegunda) + workspace.recortados;
+        if (divisor == 0) {
+            return 0;
+        }
+        int distancia;
+        if (maxDistanciaNormalizada >= 1) {
+            distancia = calcularCarregadas(workspace);
+        } else {
+            // uma unidade de folga contra o arredondamento; quem chama faz a comparação exata
+            double limite = Math.floor(maxDistanciaNormalizada * divisor) + 1;
+            distancia = calcularCarregadas((int) Math.max(0, limite), workspace);
+            if (distancia < 0) {
+                return -1;
+            }
+        }
+        return (double) distancia / divisor;
+    }
+
+    /**
+     * The distance between the sequences last loaded into the workspace.
+     */
+    private int calcularCarregadas(Workspace workspace) {
+        int[] primeira = workspace.primeira();
+        int[] segunda = workspace.segunda();
+        int tamanhoPrimeira = workspace.tamanhoPrimeira;
+        int tamanhoSegunda = workspace.tamanhoSegunda;
+        int distanciaRestrita = DistanciaBitParalela.calcularDistanciaRestrita(primeira, tamanhoPrimeira,
+                segunda, tamanhoSegunda, workspace);
+        if (distanciaRestrita <= DistanciaBitParalela.MAIOR_DISTANCIA_EXATA) {
+            return distanciaRestrita;
+        }
+        return calcularDistanciaNaFaixa(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+                distanciaRestrita, workspace);
+    }
+
+    /**
+     * The distance between the sequences last loaded into the workspace, or
+     * -1 if it is greater than maxDistancia.
+     */
+    private int calcularCarregadas(int maxDistancia, Workspace workspace) {
+        int[] primeira = workspace.primeira();
+        int[] segunda = workspace.segunda();
+        int tamanhoPrimeira = workspace.tamanhoPrimeira;
+        int tamanhoSegunda = workspace.tamanhoSegunda;
+        int distanciaRestrita = DistanciaBitParalela.calcularDistanciaRestrita(primeira, tamanhoPrimeira,
+                segunda, tamanhoSegunda, workspace);
+        if (distanciaRestrita <= DistanciaBitParalela.MAIOR_DISTANCIA_EXATA) {
+            return distanciaRestrita <= maxDistancia ? distanciaRestrita : -1;
+        }
+        if (DistanciaBitParalela.limiteInferior(distanciaRestrita) > maxDistancia) {
+            return -1;
+        }
+        return calcularDistanciaNaFaixa(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+                Math.min(maxDistancia, distanciaRestrita), workspace);
+    }
+
+    /**
+     * Compute the distance from a query to every candidate.
+     * @param consulta
+     * @param candidatos
+     * @return a new array with the distance to each candidate, in order
+     */
+    public double[] calcularDistancias(String consulta, String[] candidatos) {
+        double[] resultado = new double[candidatos.length];
+        calcularDistancias(consulta, Arrays.asList(candidatos), resultado, Workspace.daThreadAtual());
+        return resultado;
+    }
+
+    /**
+     * Compute the distance from a query to every candidate, writing the
+     * distance to {@code candidatos[i]} into {@code resultado[i]}.
+     * @param consulta
+     * @param candidatos
+     * @param resultado
+     */
+    public void calcularDistancias(String consulta, String[] candidatos, double[] resultado) {
+        calcularDistancias(consulta, Arrays.asList(candidatos), resultado, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Compute the distance from a query to every candidate, writing the
+     * distance to the i-th candidate into {@code resultado[i]}.
+     * @param consulta
+     * @param candidatos
+     * @param resultado
+     */
+    public void calcularDistancias(String consulta, List<String> candidatos, double[] resultado) {
+        calcularDistancias(consulta, candidatos, resultado, Workspace.daThreadAtual());
+    }
+
+    /**
+     * Same as {@link #calcularDistancias(String, List, double[])}, using the
+     * given workspace for all scratch memory. The query is loaded and its bit
+     * masks are built once for all candidates; the common prefix and suffix
+     * are not trimmed here, as that would change the query from candidate to
+     * candidate.
+     * @param consulta
+     * @param candidatos
+     * @param resultado
+     * @param workspace
+     */
+    public void calcularDistancias(String consulta, List<String> candidatos, double[] resultado,
+            Workspace workspace) {
+        if (resultado.length < candidatos.size()) {
+            throw new IllegalArgumentException("resultado must hold one distance per candidate");
+        }
+        // o laço é o de distancias; aqui as distâncias só passam para double
+        Rascunho rascunho = workspace.rascunho(Rascunho.class, Rascunho::new);
+        int[] distancias = rascunho.distancias = Workspace.comEspaco(rascunho.distancias, candidatos.size());
+        distancias(consulta, candidatos, distancias, workspace);
+        for (int i = 0; i < candidatos.size(); i++) {
+            resultado[i] = distancias[i];
+        }
+    }
+
+    @Override
+    public int distancia(String primeiraString, String segundaString, Workspace workspace) {
+        return (int) calcularDistancia(primeiraString, segundaString, workspace);
+    }
+
+    @Override
+    public int distancia(String primeiraString, String segundaString, int maxDistancia,
+            Workspace workspace) {
+        return (int) calcularDistancia(primeiraString, segundaString, maxDistancia, workspace);
+    }
+
+    @Override
+    public void distancias(String consulta, List<String> candidatos, int[] resultado,
+            Workspace workspace) {
+        if (resultado.length < candidatos.size()) {
+            throw new IllegalArgumentException("resultado must hold one distance per candidate");
+        }
+        int palavras = prepararConsulta(consulta, workspace);
+        for (int i = 0; i < candidatos.size(); i++) {
+            resultado[i] = calcularAPartirDaConsulta(palavras, candidatos.get(i), workspace);
+        }
+    }
+
+    @Override
+    public boolean simetrica() {
+        return true;
+    }
+
+    @Override
+    public long distanciaMaxima(int tamanhoPrimeira, int tamanhoSegunda) {
+        return Math.max(tamanhoPrimeira, tamanhoSegunda);
+    }
+
+    @Override
+    public int menorCustoDeOperacao() {
+        return 1;
+    }
+
+    @Override
+    public Unidade unidade() {
+        return unidade;
+    }
+
+    /**
+     * Load the query as the first sequence and build its bit masks, for the
+     * calls to {@link #calcularAPartirDaConsulta} that follow with the same
+     * workspace. Meant for index structures that compare one query with many
+     * candidates.
+     * @return the number of words of each mask
+     */
+    public int prepararConsulta(String consulta, Workspace workspace) {
+        workspace.carregarPrimeira(consulta, unidade);
+        return DistanciaBitParalela.prepararPadrao(workspace.primeira(), workspace.tamanhoPrimeira,
+                workspace);
+    }
+
+    private int calcularAPartirDaConsulta(int palavras, String candidato, Workspace workspace) {
+        return calcularAPartirDaConsulta(palavras, candidato, Integer.MAX_VALUE, workspace);
+    }
+
+    /**
+     * Distance from the query last prepared in the workspace to a candidate.
+     * @param palavras
+     *          the value returned by {@link #prepararConsulta}.
+     * @return the distance, or -1 if it is greater than {@code maxDistancia}
+     */
+    public int calcularAPartirDaConsulta(int palavras, String candidato, int maxDistancia,
+            Workspace workspace) {
+        workspace.carregarSegunda(candidato, unidade);
+        int[] primeira = workspace.primeira();
+        int[] segunda = workspace.segunda();
+        int tamanhoPrimeira = workspace.tamanhoPrimeira;
+        int tamanhoSegunda = workspace.tamanhoSegunda;
+        if (Math.abs(tamanhoPrimeira - tamanhoSegunda) > maxDistancia) {
+            return -1;
+        }
+        int distanciaRestrita = DistanciaBitParalela.calcularComPadrao(tamanhoPrimeira, palavras,
+                segunda, tamanhoSegunda, workspace);
+        if (distanciaRestrita <= DistanciaBitParalela.MAIOR_DISTANCIA_EXATA) {
+            return distanciaRestrita <= maxDistancia ? distanciaRestrita : -1;
+        }
+        if (DistanciaBitParalela.limiteInferior(distanciaRestrita) > maxDistancia) {
+            return -1;
+        }
+        return calcularDistanciaNaFaixa(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+                Math.min(maxDistancia, distanciaRestrita), workspace);
+    }
+
+    private int calcularDistanciaNaFaixa(int[] primeira, int tamanhoPrimeira, int[] segunda,
+            int tamanhoSegunda, int maxDistancia, Workspace workspace) {
+        if (Math.abs(tamanhoPrimeira - tamanhoSegunda) > maxDistancia) {
+            return -1;
+        }
+        int infinito = maxDistancia + 1;
+
+        // row r of H lives in linhas[r % quantidadeDeLinhas]; row 0 of H is
+        // never stored, a transposition from it is never better than the
+        // other candidates
+        int quantidadeDeLinhas = Math.min(tamanhoPrimeira + 1, maxDistancia + 2);
+        int[][] linhas = workspace.linhas(quantidadeDeLinhas, tamanhoSegunda + 2);
+        TabelaDeIndices indicesDosCaracteres = workspace.indicesAPartirDeUm;
+        indicesDosCaracteres.limpar();
+        int i;
+
+        int[] linhaAtual = linhas[1 % quantidadeDeLinhas];
+        int fim = Math.min(tamanhoSegunda, maxDistancia);
+        for (int j = 0; j <= fim; j++) {
+            linhaAtual[j + 1] = j;
+        }
+        if (fim < tamanhoSegunda) {
+            linhaAtual[fim + 2] = infinito;
+        }
+
+        for (i = 1; i <= tamanhoPrimeira; i++) {
+            int[] linhaAnterior = linhaAtual;
+            linhaAtual = linhas[(i + 1) % quantidadeDeLinhas];
+            int inicio = Math.max(0, i - maxDistancia);
+            fim = Math.min(tamanhoSegunda, i + maxDistancia);
+            int caracter = primeira[i - 1];
+
+            int menorDaLinha = infinito;
+            if (inicio == 0) {
+                linhaAtual[1] = i;
+                menorDaLinha = i;
+            } else {
+                linhaAtual[inicio] = infinito;
+            }
+            int primeiraColuna = Math.max(1, inicio);
+
+            // last match before the band that can still pay for a transposition
+            int db = 0;
+            for (int j = primeiraColuna - 1; j >= Math.max(1, primeiraColuna - 1 - maxDistancia); j--) {
+                if (caracter == segunda[j - 1]) {
+                    db = j;
+                    break;
+                }
+            }
+
+            for (int j = primeiraColuna; j <= fim; j++) {
+                int i1 = indicesDosCaracteres.get(segunda[j - 1]);
+                int j1 = db;
+
+                int cost = 1;
+                if (caracter == segunda[j - 1]) {
+                    cost = 0;
+                    db = j;
+                }
+
+                int transposicao = infinito;
+                if (i1 > 0 && j1 > 0 && i + 1 - i1 < quantidadeDeLinhas
+                        && Math.abs(i1 - j1) <= maxDistancia) {
+                    transposicao = linhas[i1 % quantidadeDeLinhas][j1] + (i - i1 - 1) + 1 + (j - j1 - 1);
+                }
+
+                int valor = Math.min(infinito, min(
+                        linhaAnterior[j] + cost, // substitution
+                        linhaAtual[j] + 1, // insertion
+                        linhaAnterior[j + 1] + 1, // deletion
+                        transposicao));
+                linhaAtual[j + 1] = valor;
+                menorDaLinha = Math.min(menorDaLinha, valor);
+            }
+            if (fim < tamanhoSegunda) {
+                linhaAtual[fim + 2] = infinito;
+            }
+            if (menorDaLinha > maxDistancia) {
+                return -1;
+            }
+
+            indicesDosCaracteres.put(caracter, i);
+        }
+
+        int distancia = linhaAtual[tamanhoSegunda + 1];
+        return distancia <= maxDistancia ? distancia : -1;
+    }
+
+    private static int min(
+            final int a, final int b, final int c, final int d) {
+        return Math.min(a, Math.min(b, Math.min(c, d)));
+    }
+
+    /**
+     * The distances of a batch, before they are written as doubles.
+     */
+    private static final class Rascunho {
+        int[] distancias = new int[16];
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,915 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Damerau-Levenshtein Algorithm is an extension to the Levenshtein
+ * Algorithm which solves the edit distance problem between a source string and
+ * a target string with the following operations:
+ * 
+ * <ul>
+ * <li>Character Insertion</li>
+ * <li>Character Deletion</li>
+ * <li>Character Replacement</li>
+ * <li>Adjacent Character Swap</li>
+ * </ul>
+ * 
+ * Note that the adjacent character swap operation is an edit that may be
+ * applied when two adjacent characters in the source string match two adjacent
+ * characters in the target string, but in reverse order, rather than a general
+ * allowance for adjacent character swaps.
+ * <p>
+ * 
+ * This implementation allows the client to specify the costs of the various
+ * edit operations with the restriction that the cost of two swap operations
+ * must not be less than the cost of a delete operation followed by an insert
+ * operation. This restriction is required to preclude two swaps involving the
+ * same character being required for optimality which, in turn, enables a fast
+ * dynamic programming solution.
+ * <p>
+ * 
+ * The running time of the Damerau-Levenshtein algorithm is O(n*m) where n is
+ * the length of the source string and m is the length of the target string.
+ * This implementation keeps only O(k*m) cells, k being the number of distinct
+ * characters shared by both strings, in a {@link Workspace} that is reused
+ * from call to call. Where the vector kernel is available (see
+ * {@link KernelVetorial}), long strings under weighted costs are computed an
+ * anti-diagonal at a time instead.
+ * <p>
+ * 
+ * Characters are UTF-16 chars unless another {@link Unidade} is given, in
+ * which case emoji and combined characters count as single characters.
+ * 
+ * @author Kevin L. Stern
+ */
+public class DamerauLevenshtein implements CalculadoraDeDistancia {
+  private final int custoRemocao, custoInsercao, custoSubstituicao, custoTroca;
+  private final boolean custosUnitarios;
+  private final boolean recortaPrefixoESufixo;
+  private final int margemDoPrefixo;
+  private final Unidade unidade;
+
+  /**
+   * Constructor.
+   * 
+   * @param custoRemocao
+   *          the cost of deleting a character.
+   * @param insertCost
+   *          the cost of inserting a character.
+   * @param replaceCost
+   *          the cost of replacing a character.
+   * @param swapCost
+   *          the cost of swapping two adjacent characters.
+   */
+  public DamerauLevenshtein(int custoRemocao, int custoInsercao,
+                                     int custoSubstituicao, int custoTroca) {
+    this(custoRemocao, custoInsercao, custoSubstituicao, custoTroca, Unidade.UTF16);
+  }
+
+  /**
+   * Constructor that also chooses what counts as one character of the
+   * strings; the costs are as in
+   * {@link #DamerauLevenshtein(int, int, int, int)}.
+   * 
+   * @param unidade
+   *          UTF-16 chars, code points or grapheme clusters.
+   */
+  public DamerauLevenshtein(int custoRemocao, int custoInsercao,
+                            int custoSubstituicao, int custoTroca, Unidade unidade) {
+    /*
+     * Required to facilitate the premise to the algorithm that two swaps of the
+     * same character are never required for optimality.
+     */
+    if (2 * custoTroca < custoInsercao + custoRemocao) {
+      throw new IllegalArgumentException("Unsupported cost assignment");
+    }
+    this.custoRemocao = custoRemocao;
+    this.custoInsercao = custoInsercao;
+    this.custoSubstituicao = custoSubstituicao;
+    this.custoTroca = custoTroca;
+    this.custosUnitarios = custoRemocao == 1 && custoInsercao == 1 && custoSubstituicao == 1
+        && custoTroca == 1;
+    /*
+     * With a swap cheaper than an insertion or a deletion the recurrence is
+     * sensitive to where the strings start, so the common prefix and suffix can
+     * only be left out otherwise. Outside of unit costs the last character of
+     * the prefix is kept, as the first row and column of the recurrence treat
+     * it specially.
+     */
+    this.recortaPrefixoESufixo = custoTroca >= Math.max(custoRemocao, custoInsercao);
+    this.margemDoPrefixo = custosUnitarios ? 0 : 1;
+    this.unidade = unidade;
+  }
+
+  /**
+   * Compute the Damerau-Levenshtein distance between the specified source
+   * string and the specified target string.
+   * <p>
+   * With unit costs the bit-parallel restricted distance is computed first:
+   * it is the answer when it is at most 2, and otherwise an upper bound that
+   * limits the band of the matrix that has to be filled. A common prefix and
+   * suffix are left out of the matrix whenever the costs allow it.
+   */
+  // a ordem entre as strings importa. calcula a distância da primeira para a segunda
+  public int calcularDistancia (String primeiraString, String segundaString) {
+    return calcularDistancia(primeiraString, segundaString, Workspace.daThreadAtual());
+  }
+
+  /**
+   * Compute the Damerau-Levenshtein distance between the specified source
+   * string and the specified target string, using the given workspace for all
+   * scratch memory.
+   */
+  public int calcularDistancia(String primeiraString, String segundaString, Workspace workspace) {
+    workspace.carregar(primeiraString, segundaString, recortaPrefixoESufixo, margemDoPrefixo,
+                       unidade);
+    return calcularCarregadas(workspace);
+  }
+
+  /**
+   * Compute the distance from a query to every candidate.
+   * 
+   * @return a new array with the distance to each candidate, in order.
+   */
+  public int[] calcularDistancias(String consulta, String[] candidatos) {
+    int[] resultado = new int[candidatos.length];
+    calcularDistancias(consulta, Arrays.asList(candidatos), resultado, Workspace.daThreadAtual());
+    return resultado;
+  }
+
+  /**
+   * Compute the distance from a query to every candidate, writing the
+   * distance to {@code candidatos[i]} into {@code resultado[i]}.
+   */
+  public void calcularDistancias(String consulta, String[] candidatos, int[] resultado) {
+    calcularDistancias(consulta, Arrays.asList(candidatos), resultado, Workspace.daThreadAtual());
+  }
+
+  /**
+   * Compute the distance from a query to every candidate, writing the
+   * distance to the i-th candidate into {@code resultado[i]}.
+   */
+  public void calcularDistancias(String consulta, List<String> candidatos, int[] resultado) {
+    calcularDistancias(consulta, candidatos, resultado, Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancias(String, List, int[])}, using the given
+   * workspace for all scratch memory.
+   * <p>
+   * The query is loaded once and, with unit costs, its bit masks are built
+   * once for all candidates. Under weighted costs the vector kernel, when
+   * available, computes a whole group of candidates at once. Prefix and suffix trimming is left out here, as
+   * it would change the query from candidate to candidate.
+   */
+  public void calcularDistancias(String consulta, List<String> candidatos, int[] resultado,
+                                 Workspace workspace) {
+    if (resultado.length < candidatos.size()) {
+      throw new IllegalArgumentException("resultado must hold one distance per candidate");
+    }
+    if (!custosUnitarios) {
+      KernelVetorial kernel = KernelVetorial.DISPONIVEL;
+      // o kernel em lote lê os candidatos como chars
+      if (kernel != null && unidade == Unidade.UTF16
+          && kernel.compensaEmLote(consulta.length(), candidatos.size())) {
+        // um candidato por faixa do vetor; os que o kernel recusa ficam com -1
+        workspace.carregarPrimeira(consulta, unidade);
+        kernel.calcularDistancias(workspace.primeira(), workspace.tamanhoPrimeira, candidatos, resultado,
+                                  custoRemocao, custoInsercao, custoSubstituicao, custoTroca, workspace);
+        for (int i = 0; i < candidatos.size(); i++) {
+          if (resultado[i] < 0) {
+            resultado[i] = calcularDistancia(consulta, candidatos.get(i), workspace);
+          }
+        }
+        return;
+      }
+      // a recorrência com pesos indexa os caracteres do candidato; só o workspace é compartilhado
+      for (int i = 0; i < candidatos.size(); i++) {
+        resultado[i] = calcularDistancia(consulta, candidatos.get(i), workspace);
+      }
+      return;
+    }
+    workspace.carregarPrimeira(consulta, unidade);
+    int[] primeira = workspace.primeira();
+    int tamanhoPrimeira = workspace.tamanhoPrimeira;
+    int palavras = DistanciaBitParalela.prepararPadrao(primeira, tamanhoPrimeira, workspace);
+    for (int i = 0; i < candidatos.size(); i++) {
+      workspace.carregarSegunda(candidatos.get(i), unidade);
+      int[] segunda = workspace.segunda();
+      int tamanhoSegunda = workspace.tamanhoSegunda;
+      int distanciaRestrita = DistanciaBitParalela.calcularComPadrao(tamanhoPrimeira, palavras,
+          segunda, tamanhoSegunda, workspace);
+      if (distanciaRestrita <= DistanciaBitParalela.MAIOR_DISTANCIA_EXATA) {
+        resultado[i] = distanciaRestrita;
+      } else {
+        resultado[i] = calcularDistanciaNaFaixa(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+                                                distanciaRestrita, workspace);
+      }
+    }
+  }
+
+  @Override
+  public int distancia(String primeiraString, String segundaString, Workspace workspace) {
+    return calcularDistancia(primeiraString, segundaString, workspace);
+  }
+
+  @Override
+  public int distancia(String primeiraString, String segundaString, int maxDistancia,
+                       Workspace workspace) {
+    return calcularDistancia(primeiraString, segundaString, maxDistancia, workspace);
+  }
+
+  @Override
+  public void distancias(String consulta, List<String> candidatos, int[] resultado,
+                         Workspace workspace) {
+    calcularDistancias(consulta, candidatos, resultado, workspace);
+  }
+
+  /**
+   * The distance is symmetric whenever deleting and inserting cost the same.
+   */
+  @Override
+  public boolean simetrica() {
+    return custoRemocao == custoInsercao;
+  }
+
+  @Override
+  public long distanciaMaxima(int tamanhoPrimeira, int tamanhoSegunda) {
+    // remover tudo e inserir tudo
+    return (long) tamanhoPrimeira * custoRemocao + (long) tamanhoSegunda * custoInsercao;
+  }
+
+  @Override
+  public int menorCustoDeOperacao() {
+    return Math.min(Math.min(custoRemocao, custoInsercao), Math.min(custoSubstituicao, custoTroca));
+  }
+
+  /**
+   * The cost of deleting a character.
+   */
+  public int custoRemocao() {
+    return custoRemocao;
+  }
+
+  /**
+   * The cost of inserting a character.
+   */
+  public int custoInsercao() {
+    return custoInsercao;
+  }
+
+  /**
+   * The cost of replacing a character.
+   */
+  public int custoSubstituicao() {
+    return custoSubstituicao;
+  }
+
+  /**
+   * The cost of swapping two adjacent characters.
+   */
+  public int custoTroca() {
+    return custoTroca;
+  }
+
+  /**
+   * What counts as one character.
+   */
+  @Override
+  public Unidade unidade() {
+    return unidade;
+  }
+
+  /**
+   * Compute the Damerau-Levenshtein distance between the specified source
+   * string and the specified target string, giving up as soon as it is known
+   * to be greater than {@code maxDistancia}.
+   * <p>
+   * Only the diagonal band of cells that can still hold a value within the
+   * limit is filled, and the computation stops at the first row whose cells
+   * all exceed it. Since the swap term skips rows, a row is only considered
+   * hopeless once it exceeds the limit by a slack of at most
+   * {@code custoRemocao + custoInsercao}: a swap that jumps over a row never
+   * beats the cells of that row by more than that. The same reach bounds how
+   * many rows the swap term may look back, so only a ring of rows is kept.
+   * 
+   * <p>
+   * With unit costs the bit-parallel restricted distance answers directly
+   * when it is at most 2, rejects the pair when two thirds of it already
+   * exceed the limit, and otherwise narrows the limit.
+   * 
+   * @param maxDistancia
+   *          the largest distance of interest.
+   * @return the distance, or -1 if it is greater than {@code maxDistancia}.
+   */
+  public int calcularDistancia(String primeiraString, String segundaString, int maxDistancia) {
+    return calcularDistancia(primeiraString, segundaString, maxDistancia,
+                             Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(String, String, int)}, using the given
+   * workspace for all scratch memory.
+   */
+  public int calcularDistancia(String primeiraString, String segundaString, int maxDistancia,
+                               Workspace workspace) {
+    if (maxDistancia < 0) {
+      throw new IllegalArgumentException("maxDistancia must not be negative");
+    }
+    workspace.carregar(primeiraString, segundaString, recortaPrefixoESufixo, margemDoPrefixo,
+                       unidade);
+    return calcularCarregadas(maxDistancia, workspace);
+  }
+
+  /**
+   * The distance divided by the largest distance two strings of the same
+   * lengths can have: substituting (or removing and inserting) every
+   * character of the shorter one, and removing or inserting the rest. It is 0
+   * for equal strings and 1 for strings with nothing in common; with unit
+   * costs the divisor is the length of the longer string.
+   */
+  public double calcularDistanciaNormalizada(String primeiraString, String segundaString) {
+    return calcularDistanciaNormalizada(primeiraString, segundaString, 1,
+                                        Workspace.daThreadAtual());
+  }
+
+  /**
+   * The normalized distance, or -1 as soon as it is known to be greater than
+   * {@code maxDistanciaNormalizada}. The limit becomes the limit of
+   * {@link #calcularDistancia(String, String, int)}, so far apart strings are
+   * rejected without filling the whole matrix.
+   */
+  public double calcularDistanciaNormalizada(String primeiraString, String segundaString,
+                                             double maxDistanciaNormalizada) {
+    return calcularDistanciaNormalizada(primeiraString, segundaString, maxDistanciaNormalizada,
+                                        Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistanciaNormalizada(String, String, double)},
+   * using the given workspace for all scratch memory.
+   */
+  public double calcularDistanciaNormalizada(String primeiraString, String segundaString,
+                                             double maxDistanciaNormalizada, Workspace workspace) {
+    double normalizada = calcularNormalizada(primeiraString, segundaString,
+                                             maxDistanciaNormalizada, workspace);
+    return normalizada <= maxDistanciaNormalizada ? normalizada : -1;
+  }
+
+  /**
+   * One minus the {@link #calcularDistanciaNormalizada normalized distance}:
+   * 1 for equal strings, 0 for strings with nothing in common.
+   */
+  public double calcularSimilaridade(String primeiraString, String segundaString) {
+    return calcularSimilaridade(primeiraString, segundaString, 0, Workspace.daThreadAtual());
+  }
+
+  /**
+   * The similarity, or -1 as soon as it is known to be lower than
+   * {@code similaridadeMinima}, which becomes the limit of
+   * {@link #calcularDistancia(String, String, int)}.
+   */
+  public double calcularSimilaridade(String primeiraString, String segundaString,
+                                     double similaridadeMinima) {
+    return calcularSimilaridade(primeiraString, segundaString, similaridadeMinima,
+                                Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularSimilaridade(String, String, double)}, using the
+   * given workspace for all scratch memory.
+   */
+  public double calcularSimilaridade(String primeiraString, String segundaString,
+                                     double similaridadeMinima, Workspace workspace) {
+    double normalizada = calcularNormalizada(primeiraString, segundaString,
+                                             1 - similaridadeMinima, workspace);
+    if (normalizada < 0) {
+      return -1;
+    }
+    double similaridade = 1 - normalizada;
+    return similaridade >= similaridadeMinima ? similaridade : -1;
+  }
+
+  /**
+   * The normalized distance, or -1 if the distance is certainly greater than
+   * {@code maxDistanciaNormalizada}; values a rounding error above the limit
+   * are returned for the caller to compare.
+   */
+  private double calcularNormalizada(String primeiraString, String segundaString,
+                                     double maxDistanciaNormalizada, Workspace workspace) {
+    workspace.carregar(primeiraString, segundaString, recortaPrefixoESufixo, margemDoPrefixo,
+                       unidade);
+    long divisor = maiorDistancia(workspace.tamanhoPrimeira + workspace.recortados,
+                                  workspace.tamanhoSegunda + workspace.recortados);
+    if (divisor == 0) {
+      return 0;
+    }
+    int distancia;
+    if (maxDistanciaNormalizada >= 1) {
+      distancia = calcularCarregadas(workspace);
+    } else {
+      // uma unidade de folga contra o arredondamento; quem chama faz a comparação exata
+      double limite = Math.floor(maxDistanciaNormalizada * divisor) + 1;
+      distancia = calcularCarregadas((int) Math.max(0, Math.min(limite, Integer.MAX_VALUE)),
+                                     workspace);
+      if (distancia < 0) {
+        return -1;
+      }
+    }
+    return (double) distancia / divisor;
+  }
+
+  /**
+   * The largest distance between strings of the given lengths, reached when
+   * they have no character in common.
+   */
+  private long maiorDistancia(int tamanhoPrimeira, int tamanhoSegunda) {
+    long pares = (long) Math.min(tamanhoPrimeira, tamanhoSegunda)
+        * Math.min(custoSubstituicao, custoRemocao + custoInsercao);
+    return tamanhoPrimeira >= tamanhoSegunda
+        ? pares + (long) (tamanhoPrimeira - tamanhoSegunda) * custoRemocao
+        : pares + (long) (tamanhoSegunda - tamanhoPrimeira) * custoInsercao;
+  }
+
+  /**
+   * Compute the Damerau-Levenshtein distance between two sequences of int
+   * tokens, such as word or symbol ids, exactly as between strings. Tokens are
+   * only compared for equality, and vocabularies of any size are handled
+   * without boxing.
+   */
+  public int calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia) {
+    return calcularDistancia(primeiraSequencia, segundaSequencia, Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(int[], int[])}, using the given workspace
+   * for all scratch memory.
+   */
+  public int calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia,
+                               Workspace workspace) {
+    workspace.carregar(primeiraSequencia, segundaSequencia, recortaPrefixoESufixo, margemDoPrefixo);
+    return calcularCarregadas(workspace);
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(String, String, int)}, for sequences of
+   * int tokens.
+   */
+  public int calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia, int maxDistancia) {
+    return calcularDistancia(primeiraSequencia, segundaSequencia, maxDistancia,
+                             Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(int[], int[], int)}, using the given
+   * workspace for all scratch memory.
+   */
+  public int calcularDistancia(int[] primeiraSequencia, int[] segundaSequencia, int maxDistancia,
+                               Workspace workspace) {
+    if (maxDistancia < 0) {
+      throw new IllegalArgumentException("maxDistancia must not be negative");
+    }
+    workspace.carregar(primeiraSequencia, segundaSequencia, recortaPrefixoESufixo, margemDoPrefixo);
+    return calcularCarregadas(maxDistancia, workspace);
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(int[], int[])}, for sequences of
+   * long tokens. Distinct tokens are renumbered densely first.
+   */
+  public int calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia) {
+    return calcularDistancia(primeiraSequencia, segundaSequencia, Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(long[], long[])}, using the given
+   * workspace for all scratch memory.
+   */
+  public int calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia,
+                               Workspace workspace) {
+    workspace.carregar(primeiraSequencia, segundaSequencia, recortaPrefixoESufixo, margemDoPrefixo);
+    return calcularCarregadas(workspace);
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(int[], int[], int)}, for sequences of
+   * long tokens.
+   */
+  public int calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia, int maxDistancia) {
+    return calcularDistancia(primeiraSequencia, segundaSequencia, maxDistancia,
+                             Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(long[], long[], int)}, using the given
+   * workspace for all scratch memory.
+   */
+  public int calcularDistancia(long[] primeiraSequencia, long[] segundaSequencia, int maxDistancia,
+                               Workspace workspace) {
+    if (maxDistancia < 0) {
+      throw new IllegalArgumentException("maxDistancia must not be negative");
+    }
+    workspace.carregar(primeiraSequencia, segundaSequencia, recortaPrefixoESufixo, margemDoPrefixo);
+    return calcularCarregadas(maxDistancia, workspace);
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(int[], int[])}, for sequences of
+   * unsigned bytes.
+   */
+  public int calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia) {
+    return calcularDistancia(primeiraSequencia, segundaSequencia, Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(byte[], byte[])}, using the given
+   * workspace for all scratch memory.
+   */
+  public int calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia,
+                               Workspace workspace) {
+    workspace.carregar(primeiraSequencia, segundaSequencia, recortaPrefixoESufixo, margemDoPrefixo);
+    return calcularCarregadas(workspace);
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(int[], int[], int)}, for sequences of
+   * unsigned bytes.
+   */
+  public int calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia, int maxDistancia) {
+    return calcularDistancia(primeiraSequencia, segundaSequencia, maxDistancia,
+                             Workspace.daThreadAtual());
+  }
+
+  /**
+   * Same as {@link #calcularDistancia(byte[], byte[], int)}, using the given
+   * workspace for all scratch memory.
+   */
+  public int calcularDistancia(byte[] primeiraSequencia, byte[] segundaSequencia, int maxDistancia,
+                               Workspace workspace) {
+    if (maxDistancia < 0) {
+      throw new IllegalArgumentException("maxDistancia must not be negative");
+    }
+    workspace.carregar(primeiraSequencia, segundaSequencia, recortaPrefixoESufixo, margemDoPrefixo);
+    return calcularCarregadas(maxDistancia, workspace);
+  }
+
+  /**
+   * The distance between the sequences last loaded into the workspace.
+   */
+  private int calcularCarregadas(Workspace workspace) {
+    int[] primeira = workspace.primeira();
+    int[] segunda = workspace.segunda();
+    int tamanhoPrimeira = workspace.tamanhoPrimeira;
+    int tamanhoSegunda = workspace.tamanhoSegunda;
+	//considera que todos os caracteres foram inseridos  
+    if (tamanhoPrimeira == 0) {
+      return tamanhoSegunda * custoInsercao;
+    }
+    //considera que todos os caracteres foram removidos
+    if (tamanhoSegunda == 0) {
+      return tamanhoPrimeira * custoRemocao;
+    }
+    if (custosUnitarios) {
+      int distanciaRestrita = DistanciaBitParalela.calcularDistanciaRestrita(primeira,
+          tamanhoPrimeira, segunda, tamanhoSegunda, workspace);
+      if (distanciaRestrita <= DistanciaBitParalela.MAIOR_DISTANCIA_EXATA) {
+        return distanciaRestrita;
+      }
+      return calcularDistanciaNaFaixa(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+                                      distanciaRestrita, workspace);
+    }
+    KernelVetorial kernelVetorial = KernelVetorial.DISPONIVEL;
+    if (kernelVetorial != null && kernelVetorial.compensa(tamanhoPrimeira, tamanhoSegunda)) {
+      return kernelVetorial.calcularDistancia(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+          custoRemocao, custoInsercao, custoSubstituicao, custoTroca, workspace);
+    }
+    return calcularEmEspacoLinear(primeira, tamanhoPrimeira, segunda, tamanhoSegunda, workspace);
+  }
+
+  /**
+   * The distance between the sequences last loaded into the workspace, or -1
+   * if it is greater than {@code maxDistancia}.
+   */
+  private int calcularCarregadas(int maxDistancia, Workspace workspace) {
+    int[] primeira = workspace.primeira();
+    int[] segunda = workspace.segunda();
+    int tamanhoPrimeira = workspace.tamanhoPrimeira;
+    int tamanhoSegunda = workspace.tamanhoSegunda;
+    if (custosUnitarios) {
+      int distanciaRestrita = DistanciaBitParalela.calcularDistanciaRestrita(primeira,
+          tamanhoPrimeira, segunda, tamanhoSegunda, workspace);
+      if (distanciaRestrita <= DistanciaBitParalela.MAIOR_DISTANCIA_EXATA) {
+        return distanciaRestrita <= maxDistancia ? distanciaRestrita : -1;
+      }
+      if (DistanciaBitParalela.limiteInferior(distanciaRestrita) > maxDistancia) {
+        return -1;
+      }
+      maxDistancia = Math.min(maxDistancia, distanciaRestrita);
+    }
+    return calcularDistanciaNaFaixa(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+                                    maxDistancia, workspace);
+  }
+
+  private int calcularDistanciaNaFaixa(int[] primeira, int tamanhoPrimeira, int[] segunda,
+                                       int tamanhoSegunda, int maxDistancia,
+                                       Workspace workspace) {
+    if (tamanhoPrimeira == 0) {
+      int distancia = tamanhoSegunda * custoInsercao;
+      return distancia <= maxDistancia ? distancia : -1;
+    }
+    if (tamanhoSegunda == 0) {
+      int distancia = tamanhoPrimeira * custoRemocao;
+      return distancia <= maxDistancia ? distancia : -1;
+    }
+    /*
+     * A swap that starts at the first character of either string reuses the
+     * value of the first row or column, which may save one insertion or
+     * deletion when the swap is cheaper than it. The lower bounds below are
+     * relaxed by that amount.
+     */
+    int folgaDaTroca = Math.max(0, Math.max(custoRemocao, custoInsercao) - custoTroca);
+    // cada caracter de diferença no tamanho custa ao menos uma remoção ou inserção
+    if (tamanhoPrimeira > tamanhoSegunda
+        ? (tamanhoPrimeira - tamanhoSegunda) * custoRemocao > maxDistancia + folgaDaTroca
+        : (tamanhoSegunda - tamanhoPrimeira) * custoInsercao > maxDistancia + folgaDaTroca) {
+      return -1;
+    }
+
+    // células até o limite são exatas; as demais valem no máximo infinito
+    int limite = maxDistancia + folgaDaTroca
+        + Math.max(0, custoRemocao + custoInsercao - custoTroca);
+    int infinito = limite + 1;
+    int faixaEsquerda = custoRemocao > 0 ? limite / custoRemocao : tamanhoPrimeira;
+    int faixaDireita = custoInsercao > 0 ? limite / custoInsercao : tamanhoSegunda;
+    int quantidadeDeLinhas = custoRemocao > 0
+        ? Math.min(tamanhoPrimeira, limite / custoRemocao + 3) : tamanhoPrimeira;
+    int[][] linhas = workspace.linhas(quantidadeDeLinhas, tamanhoSegunda);
+    TabelaDeIndices indicesDaPrimeiraStringPorCaracter = workspace.indices;
+    indicesDaPrimeiraStringPorCaracter.limpar();
+
+    int[] linhaAtual = linhas[0];
+    int fim = Math.min(tamanhoSegunda - 1, faixaDireita);
+    linhaAtual[0] = primeira[0] != segunda[0]
+        ? Math.min(infinito, Math.min(custoSubstituicao, custoRemocao + custoInsercao)) : 0;
+    // a fórmula da coluna 0 parte de uma coluna implícita à esquerda, que vale
+    // (i + 1) * custoRemocao na linha i; ela também conta para o mínimo da linha
+    int menorDaLinha = Math.min(linhaAtual[0], custoRemocao);
+    for (int j = 1; j <= fim; j++) {
+      int deleteDistance = (j + 1) * custoInsercao + custoRemocao;
+      int insertDistance = linhaAtual[j - 1] + custoInsercao;
+      int matchDistance = j * custoInsercao
+          + (primeira[0] == segunda[j] ? 0 : custoSubstituicao);
+      linhaAtual[j] = Math.min(infinito,
+          Math.min(Math.min(deleteDistance, insertDistance), matchDistance));
+      menorDaLinha = Math.min(menorDaLinha, linhaAtual[j]);
+    }
+    if (fim + 1 < tamanhoSegunda) {
+      linhaAtual[fim + 1] = infinito;
+    }
+    if (menorDaLinha > limite) {
+      return -1;
+    }
+    indicesDaPrimeiraStringPorCaracter.put(primeira[0], 0);
+
+    for (int i = 1; i < tamanhoPrimeira; i++) {
+      int[] linhaAnterior = linhaAtual;
+      linhaAtual = linhas[i % quantidadeDeLinhas];
+      int inicio = Math.max(0, i - faixaEsquerda);
+      fim = Math.min(tamanhoSegunda - 1, i + faixaDireita);
+      if (inicio > fim) {
+        return -1;
+      }
+      int caracter = primeira[i];
+      menorDaLinha = Math.min(infinito, (i + 1) * custoRemocao);
+      if (inicio == 0) {
+        int distanciaRemocao = linhaAnterior[0] + custoRemocao;
+        int distanciaInsercao = (i + 1) * custoRemocao + custoInsercao;
+        int distanciaSubstituicao = i * custoRemocao
+            + (caracter == segunda[0] ? 0 : custoSubstituicao);
+        linhaAtual[0] = Math.min(infinito, Math.min(Math.min(distanciaRemocao, distanciaInsercao),
+                                                    distanciaSubstituicao));
+        menorDaLinha = Math.min(menorDaLinha, linhaAtual[0]);
+      } else {
+        linhaAtual[inicio - 1] = infinito;
+      }
+
+      int primeiraColuna = Math.max(1, inicio);
+      // última ocorrência do caracter antes da faixa que ainda pode pagar uma troca
+      int colunaMinima = custoInsercao > 0
+          ? Math.max(0, primeiraColuna - 1 - limite / custoInsercao) : 0;
+      int maxSourceLetterMatchIndex = -1;
+      for (int j = primeiraColuna - 1; j >= colunaMinima; j--) {
+        if (segunda[j] == caracter) {
+          maxSourceLetterMatchIndex = j;
+          break;
+        }
+      }
+      for (int j = primeiraColuna; j <= fim; j++) {
+        int candidateSwapIndex = indicesDaPrimeiraStringPorCaracter.get(segunda[j]);
+        int jSwap = maxSourceLetterMatchIndex;
+        int deleteDistance = linhaAnterior[j] + custoRemocao;
+        int insertDistance = linhaAtual[j - 1] + custoInsercao;
+        int matchDistance = linhaAnterior[j - 1];
+        if (caracter != segunda[j]) {
+          matchDistance += custoSubstituicao;
+        } else {
+          maxSourceLetterMatchIndex = j;
+        }
+        int swapDistance;
+        if (candidateSwapIndex != -1 && jSwap != -1) {
+          int iSwap = candidateSwapIndex;
+          int preSwapCost;
+          if (iSwap == 0 && jSwap == 0) {
+            preSwapCost = 0;
+          } else {
+            int linhaDaTroca = Math.max(0, iSwap - 1);
+            int colunaDaTroca = Math.max(0, jSwap - 1);
+            if (i - linhaDaTroca < quantidadeDeLinhas
+                && colunaDaTroca >= linhaDaTroca - faixaEsquerda
+                && colunaDaTroca <= linhaDaTroca + faixaDireita) {
+              preSwapCost = linhas[linhaDaTroca % quantidadeDeLinhas][colunaDaTroca];
+            } else {
+              preSwapCost = infinito;
+            }
+          }
+          swapDistance = preSwapCost + (i - iSwap - 1) * custoRemocao
+              + (j - jSwap - 1) * custoInsercao + custoTroca;
+        } else {
+          swapDistance = Integer.MAX_VALUE;
+        }
+        linhaAtual[j] = Math.min(infinito, Math.min(Math.min(Math
+            .min(deleteDistance, insertDistance), matchDistance), swapDistance));
+        menorDaLinha = Math.min(menorDaLinha, linhaAtual[j]);
+      }
+      if (fim + 1 < tamanhoSegunda) {
+        linhaAtual[fim + 1] = infinito;
+      }
+      if (menorDaLinha > limite) {
+        return -1;
+      }
+      indicesDaPrimeiraStringPorCaracter.put(caracter, i);
+    }
+    int distancia = linhaAtual[tamanhoSegunda - 1];
+    return distancia <= maxDistancia ? distancia : -1;
+  }
+
+  /**
+   * Compute the same distance as {@link #calcularDistancia(String, String)}
+   * without allocating the whole distance matrix, and without the unit-cost
+   * shortcuts.
+   * <p>
+   * Besides the previous row, the swap term only reads the row just before the
+   * last occurrence, in the source string, of the current target character. So
+   * it is enough to keep one such row per character that appears in both
+   * strings, plus the previous and current rows. Rows are handed over between
+   * these roles instead of being copied.
+   */
+  public int calcularDistanciaEmEspacoLinear(String primeiraString, String segundaString) {
+    Workspace workspace = Workspace.daThreadAtual();
+    workspace.carregar(primeiraString, segundaString, false, 0, unidade);
+    if (workspace.tamanhoPrimeira == 0) {
+      return workspace.tamanhoSegunda * custoInsercao;
+    }
+    if (workspace.tamanhoSegunda == 0) {
+      return workspace.tamanhoPrimeira * custoRemocao;
+    }
+    return calcularEmEspacoLinear(workspace.primeira(), workspace.tamanhoPrimeira,
+                                  workspace.segunda(), workspace.tamanhoSegunda, workspace);
+  }
+
+  /**
+   * An optimal edit script from the first string to the second under the
+   * Lowrance-Wagner recurrence, found in linear space by divide and conquer;
+   * positions count {@link Unidade} symbols.
+   * <p>
+   * Memory is one row per distinct character of the second string, as in
+   * {@link #calcularDistanciaEmEspacoLinear}. The cost of the script is the
+   * Lowrance-Wagner distance, not {@link #calcularDistancia(String, String)}:
+   * the first row and column of that matrix price a swap reaching back to the
+   * first character of either string with a cell that counts a character
+   * twice, so with weights other than unit costs it can be above or below the
+   * cost of every script. With unit costs the two always agree.
+   */
+  public Alinhamento calcularAlinhamentoLowranceWagner(String primeiraString, String segundaString) {
+    return calcularAlinhamentoLowranceWagner(primeiraString, segundaString, Workspace.daThreadAtual());
+  }
+
+  /**
+   * The edit script of
+   * {@link #calcularAlinhamentoLowranceWagner(String, String)}, using the
+   * given workspace for all scratch memory.
+   */
+  public Alinhamento calcularAlinhamentoLowranceWagner(String primeiraString, String segundaString,
+                                                       Workspace workspace) {
+    workspace.carregar(primeiraString, segundaString, false, 0, unidade);
+    return AlinhamentoEmEspacoLinear.alinhar(workspace.primeira(), workspace.tamanhoPrimeira,
+                                             workspace.segunda(), workspace.tamanhoSegunda,
+                                             custoRemocao, custoInsercao, custoSubstituicao,
+                                             custoTroca, workspace);
+  }
+
+  private int calcularEmEspacoLinear(int[] primeira, int tamanhoPrimeira, int[] segunda,
+                                     int tamanhoSegunda, Workspace workspace) {
+
+    // linha do workspace salva para cada caracter; -1: caracter ausente da
+    // segunda string, -2: presente, ainda sem linha salva
+    TabelaDeIndices linhaSalvaPorCaracter = workspace.linhasPorCaracter;
+    linhaSalvaPorCaracter.limpar();
+    for (int j = 0; j < tamanhoSegunda; j++) {
+      linhaSalvaPorCaracter.put(segunda[j], -2);
+    }
+    TabelaDeIndices indicesDaPrimeiraStringPorCaracter = workspace.indices;
+    indicesDaPrimeiraStringPorCaracter.limpar();
+
+    int[][] linhas = workspace.linhas(2, tamanhoSegunda);
+    int quantidadeDeLinhas = 2;
+    int[] linhaAnterior = linhas[0];
+    int[] linhaAtual = linhas[1];
+    int indiceAnterior = 0;
+    int indiceAtual = 1;
+
+    linhaAtual[0] = primeira[0] != segunda[0]
+        ? Math.min(custoSubstituicao, custoRemocao + custoInsercao) : 0;
+    for (int j = 1; j < tamanhoSegunda; j++) {
+      int deleteDistance = (j + 1) * custoInsercao + custoRemocao;
+      int insertDistance = linhaAtual[j - 1] + custoInsercao;
+      int matchDistance = j * custoInsercao
+          + (primeira[0] == segunda[j] ? 0 : custoSubstituicao);
+      linhaAtual[j] = Math.min(Math.min(deleteDistance, insertDistance), matchDistance);
+    }
+
+    for (int i = 0; i < tamanhoPrimeira; i++) {
+      if (i > 0) {
+        int distanciaRemocao = linhaAnterior[0] + custoRemocao;
+        int distanciaInsercao = (i + 1) * custoRemocao + custoInsercao;
+        int distanciaSubstituicao = i * custoRemocao
+            + (primeira[i] == segunda[0] ? 0 : custoSubstituicao);
+        linhaAtual[0] = Math.min(Math.min(distanciaRemocao, distanciaInsercao),
+                                 distanciaSubstituicao);
+        int maxSourceLetterMatchIndex = primeira[i] == segunda[0] ? 0
+            : -1;
+        for (int j = 1; j < tamanhoSegunda; j++) {
+          int candidateSwapIndex = indicesDaPrimeiraStringPorCaracter.get(segunda[j]);
+          int jSwap = maxSourceLetterMatchIndex;
+          int deleteDistance = linhaAnterior[j] + custoRemocao;
+          int insertDistance = linhaAtual[j - 1] + custoInsercao;
+          int matchDistance = linhaAnterior[j - 1];
+          if (primeira[i] != segunda[j]) {
+            matchDistance += custoSubstituicao;
+          } else {
+            maxSourceLetterMatchIndex = j;
+          }
+          int swapDistance;
+          if (candidateSwapIndex != -1 && jSwap != -1) {
+            int iSwap = candidateSwapIndex;
+            int preSwapCost;
+            if (iSwap == 0 && jSwap == 0) {
+              preSwapCost = 0;
+            } else {
+              // linha max(0, iSwap - 1), salva quando iSwap foi processada
+              int[] linhaDaTroca = linhas[linhaSalvaPorCaracter.get(segunda[j])];
+              preSwapCost = linhaDaTroca[Math.max(0, jSwap - 1)];
+            }
+            swapDistance = preSwapCost + (i - iSwap - 1) * custoRemocao
+                + (j - jSwap - 1) * custoInsercao + custoTroca;
+          } else {
+            swapDistance = Integer.MAX_VALUE;
+          }
+          linhaAtual[j] = Math.min(Math.min(Math
+              .min(deleteDistance, insertDistance), matchDistance), swapDistance);
+        }
+      }
+      int caracter = primeira[i];
+      indicesDaPrimeiraStringPorCaracter.put(caracter, i);
+
+      int linhaSalva = linhaSalvaPorCaracter.get(caracter);
+      int indiceLivre;
+      if (linhaSalva == -1) {
+        // caracter nunca consultado pela troca: basta alternar as linhas
+        indiceLivre = indiceAnterior;
+      } else {
+        if (linhaSalva == -2) {
+          linhas = workspace.linhas(quantidadeDeLinhas + 1, tamanhoSegunda);
+          linhaSalva = quantidadeDeLinhas++;
+          indiceLivre = linhaSalva;
+        } else {
+          indiceLivre = linhaSalva;
+        }
+        if (i == 0) {
+          // a linha 0 continua sendo a anterior da linha 1, então é copiada
+          System.arraycopy(linhaAtual, 0, linhas[indiceLivre], 0, tamanhoSegunda);
+          linhaSalvaPorCaracter.put(caracter, indiceLivre);
+          indiceLivre = indiceAnterior;
+        } else {
+          linhaSalvaPorCaracter.put(caracter, indiceAnterior);
+        }
+      }
+      indiceAnterior = indiceAtual;
+      indiceAtual = indiceLivre;
+      linhaAnterior = linhas[indiceAnterior];
+      linhaAtual = linhas[indiceAtual];
+    }
+    return linhaAnterior[tamanhoSegunda - 1];
+  }
+}
@@ -0,0 +1,198 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * All the distances between a set of row strings and a set of column strings.
+ * <p>
+ * The matrix is split into tiles of {@value #BLOCO_DE_LINHAS} rows by
+ * {@value #BLOCO_DE_COLUNAS} columns, so the column strings of a tile stay in
+ * cache while every row of the tile is compared with them, each row as one
+ * batch call of the calculator. Tiles are spread over a {@link ForkJoinPool}
+ * by recursive halving, which lets idle workers steal the remaining halves,
+ * and every worker uses the {@link Workspace} of its own thread.
+ * <p>
+ * Distances are stored one primitive array per row, in 16 bits when the
+ * calculator guarantees they fit and in 32 bits otherwise, so the matrix is
+ * not limited to the size of a single Java array. When the rows and columns
+ * are the same strings and the distance is symmetric, only the part below the
+ * diagonal is computed and stored.
+ */
+public final class DistanceMatrix {
+
+    static final int BLOCO_DE_LINHAS = 64;
+    static final int BLOCO_DE_COLUNAS = 256;
+
+    private static final int MAIOR_DISTANCIA_COMPACTA = Character.MAX_VALUE;
+
+    private final int quantidadeDeLinhas;
+    private final int quantidadeDeColunas;
+    private final boolean triangular;
+    // uma das duas representações fica nula
+    private final char[][] compactas;
+    private final int[][] largas;
+
+    private DistanceMatrix(int quantidadeDeLinhas, int quantidadeDeColunas, boolean triangular,
+            boolean compacta) {
+        this.quantidadeDeLinhas = quantidadeDeLinhas;
+        this.quantidadeDeColunas = quantidadeDeColunas;
+        this.triangular = triangular;
+        this.compactas = compacta ? new char[quantidadeDeLinhas][] : null;
+        this.largas = compacta ? null : new int[quantidadeDeLinhas][];
+        for (int i = 0; i < quantidadeDeLinhas; i++) {
+            int tamanho = triangular ? i : quantidadeDeColunas;
+            if (compacta) {
+                compactas[i] = new char[tamanho];
+            } else {
+                largas[i] = new int[tamanho];
+            }
+        }
+    }
+
+    /**
+     * Compute every distance from {@code linhas[i]} to {@code colunas[j]} on
+     * the common fork-join pool.
+     */
+    public static DistanceMatrix calcular(String[] linhas, String[] colunas,
+            CalculadoraDeDistancia calculadora) {
+        return calcular(linhas, colunas, calculadora, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute every distance from {@code linhas[i]} to {@code colunas[j]} on
+     * the given pool.
+     */
+    public static DistanceMatrix calcular(String[] linhas, String[] colunas,
+            CalculadoraDeDistancia calculadora, ForkJoinPool pool) {
+        boolean triangular = calculadora.simetrica()
+                && (linhas == colunas || Arrays.equals(linhas, colunas));
+        DistanceMatrix matriz = new DistanceMatrix(linhas.length, colunas.length, triangular,
+                cabeEmDezesseisBits(linhas, colunas, calculadora));
+        int blocosDeLinhas = (linhas.length + BLOCO_DE_LINHAS - 1) / BLOCO_DE_LINHAS;
+        int blocosDeColunas = (colunas.length + BLOCO_DE_COLUNAS - 1) / BLOCO_DE_COLUNAS;
+        pool.invoke(new Tarefa(matriz, linhas, Arrays.asList(colunas), calculadora, blocosDeColunas,
+                0, blocosDeLinhas * blocosDeColunas));
+        return matriz;
+    }
+
+    private static boolean cabeEmDezesseisBits(String[] linhas, String[] colunas,
+            CalculadoraDeDistancia calculadora) {
+        int maiorLinha = 0;
+        for (String linha : linhas) {
+            maiorLinha = Math.max(maiorLinha, linha.length());
+        }
+        int maiorColuna = 0;
+        for (String coluna : colunas) {
+            maiorColuna = Math.max(maiorColuna, coluna.length());
+        }
+        return calculadora.distanciaMaxima(maiorLinha, maiorColuna) <= MAIOR_DISTANCIA_COMPACTA;
+    }
+
+    public int getQuantidadeDeLinhas() {
+        return quantidadeDeLinhas;
+    }
+
+    public int getQuantidadeDeColunas() {
+        return quantidadeDeColunas;
+    }
+
+    /**
+     * The distance from the string of the given row to the string of the
+     * given column.
+     */
+    public int distancia(int linha, int coluna) {
+        if (linha < 0 || coluna < 0 || linha >= quantidadeDeLinhas || coluna >= quantidadeDeColunas) {
+            throw new IndexOutOfBoundsException("(" + linha + ", " + coluna + ")");
+        }
+        if (triangular) {
+            if (linha == coluna) {
+                return 0;
+            }
+            if (coluna > linha) {
+                int troca = linha;
+                linha = coluna;
+                coluna = troca;
+            }
+        }
+        return compactas != null ? compactas[linha][coluna] : largas[linha][coluna];
+    }
+
+    private void guardar(int linha, int primeiraColuna, int[] distancias, int quantidade) {
+        if (compactas != null) {
+            char[] destino = compactas[linha];
+            for (int k = 0; k < quantidade; k++) {
+                destino[primeiraColuna + k] = (char) distancias[k];
+            }
+        } else {
+            System.arraycopy(distancias, 0, largas[linha], primeiraColuna, quantidade);
+        }
+    }
+
+    /**
+     * A range of tiles, numbered row block by row block.
+     */
+    private static final class Tarefa extends RecursiveAction {
+
+        private final DistanceMatrix matriz;
+        private final String[] linhas;
+        private final List<String> colunas;
+        private final CalculadoraDeDistancia calculadora;
+        private final int blocosDeColunas;
+        private final int inicio;
+        private final int fim;
+
+        Tarefa(DistanceMatrix matriz, String[] linhas, List<String> colunas,
+                CalculadoraDeDistancia calculadora, int blocosDeColunas, int inicio, int fim) {
+            this.matriz = matriz;
+            this.linhas = linhas;
+            this.colunas = colunas;
+            this.calculadora = calculadora;
+            this.blocosDeColunas = blocosDeColunas;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > 1) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new Tarefa(matriz, linhas, colunas, calculadora, blocosDeColunas, inicio, meio),
+                        new Tarefa(matriz, linhas, colunas, calculadora, blocosDeColunas, meio, fim));
+                return;
+            }
+            int blocoDeLinhas = inicio / blocosDeColunas;
+            int blocoDeColunas = inicio % blocosDeColunas;
+            int primeiraColuna = blocoDeColunas * BLOCO_DE_COLUNAS;
+            // no triângulo, só os blocos até a diagonal têm algo a calcular
+            if (matriz.triangular && primeiraColuna >= (blocoDeLinhas + 1) * BLOCO_DE_LINHAS) {
+                return;
+            }
+            Workspace workspace = Workspace.daThreadAtual();
+            int[] distancias = workspace.rascunho(Rascunho.class, Rascunho::new).distancias;
+            int ultimaLinha = Math.min(linhas.length, (blocoDeLinhas + 1) * BLOCO_DE_LINHAS);
+            for (int i = blocoDeLinhas * BLOCO_DE_LINHAS; i < ultimaLinha; i++) {
+                int ultimaColuna = Math.min(colunas.size(), primeiraColuna + BLOCO_DE_COLUNAS);
+                if (matriz.triangular) {
+                    ultimaColuna = Math.min(ultimaColuna, i);
+                }
+                if (ultimaColuna <= primeiraColuna) {
+                    continue;
+                }
+                calculadora.distancias(linhas[i], colunas.subList(primeiraColuna, ultimaColuna),
+                        distancias, workspace);
+                matriz.guardar(i, primeiraColuna, distancias, ultimaColuna - primeiraColuna);
+            }
+        }
+    }
+
+    /**
+     * The distances of one row of a tile, kept in the workspace of the
+     * worker thread.
+     */
+    private static final class Rascunho {
+        final int[] distancias = new int[BLOCO_DE_COLUNAS];
+    }
+}
@@ -0,0 +1,183 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+
+/**
+ * Bit-parallel computation of the unit-cost restricted Damerau-Levenshtein
+ * (optimal string alignment) distance, following Hyyrö's extension of Myers'
+ * algorithm: a whole column of the distance matrix is encoded as vertical
+ * deltas and advanced with a handful of word operations per text character.
+ * Patterns of up to 64 characters fit in a single {@code long}; longer ones use
+ * the blocked variant, carrying the horizontal deltas from word to word.
+ * <p>
+ * The restricted distance only allows swapping characters that stay adjacent,
+ * so it is an upper bound of the distance computed by {@link DL2} and by a
+ * unit-cost {@link DamerauLevenshtein}. Both coincide whenever the restricted
+ * distance is at most 2, and the unrestricted distance is never below two
+ * thirds of the restricted one: a swap with g characters inserted or deleted
+ * in between costs g + 1 there and at most g + 2 here, with g at least 1.
+ */
+final class DistanciaBitParalela {
+
+    static final int TAMANHO_DA_PALAVRA = 64;
+
+    /**
+     * Largest distance for which the restricted distance is known to be equal
+     * to the unrestricted one.
+     */
+    static final int MAIOR_DISTANCIA_EXATA = 2;
+
+    private DistanciaBitParalela() {
+    }
+
+    /**
+     * Smallest unrestricted distance compatible with a given restricted one.
+     */
+    static int limiteInferior(int distanciaRestrita) {
+        return (2 * distanciaRestrita + 2) / 3;
+    }
+
+    static int calcularDistanciaRestrita(int[] primeira, int tamanhoPrimeira, int[] segunda,
+            int tamanhoSegunda, Workspace workspace) {
+        // a distância é simétrica; o padrão é a menor sequência, para usar menos palavras
+        if (tamanhoPrimeira > tamanhoSegunda) {
+            return calcularDistanciaRestrita(segunda, tamanhoSegunda, primeira, tamanhoPrimeira, workspace);
+        }
+        int palavras = prepararPadrao(primeira, tamanhoPrimeira, workspace);
+        return calcularComPadrao(tamanhoPrimeira, palavras, segunda, tamanhoSegunda, workspace);
+    }
+
+    /**
+     * Store the occurrence masks of every character of the pattern in the
+     * workspace, where they stay valid for any number of calls to
+     * {@link #calcularComPadrao} until the next pattern is prepared.
+     *
+     * @return the number of words of each mask.
+     */
+    static int prepararPadrao(int[] padrao, int tamanhoPadrao, Workspace workspace) {
+        int palavras = (tamanhoPadrao + TAMANHO_DA_PALAVRA - 1) / TAMANHO_DA_PALAVRA;
+        // máscara de ocorrências de cada caracter do padrão
+        TabelaDeIndices indiceDaMascara = workspace.mascarasPorCaracter;
+        indiceDaMascara.limpar();
+        long[] mascaras = workspace.mascaras(palavras);
+        int caracteresDistintos = 0;
+        for (int i = 0; i < tamanhoPadrao; i++) {
+            int caracter = padrao[i];
+            int indice = indiceDaMascara.get(caracter);
+            if (indice == -1) {
+                indice = caracteresDistintos++;
+                indiceDaMascara.put(caracter, indice);
+                mascaras = workspace.mascaras(caracteresDistintos * palavras);
+                Arrays.fill(mascaras, indice * palavras, caracteresDistintos * palavras, 0L);
+            }
+            mascaras[indice * palavras + i / TAMANHO_DA_PALAVRA] |= 1L << i;
+        }
+        return palavras;
+    }
+
+    /**
+     * Restricted distance between the pattern last prepared in the workspace
+     * and the given text.
+     */
+    static int calcularComPadrao(int tamanhoPadrao, int palavras, int[] texto, int tamanhoTexto,
+            Workspace workspace) {
+        if (tamanhoPadrao == 0) {
+            return tamanhoTexto;
+        }
+        TabelaDeIndices indiceDaMascara = workspace.mascarasPorCaracter;
+        long[] mascaras = workspace.mascaras(palavras);
+        if (palavras == 1) {
+            return calcularEmUmaPalavra(tamanhoPadrao, indiceDaMascara, mascaras, texto, tamanhoTexto);
+        }
+        return calcularEmBlocos(tamanhoPadrao, palavras, indiceDaMascara, mascaras, texto,
+                tamanhoTexto, workspace.vetores(4 * palavras));
+    }
+
+    private static int calcularEmUmaPalavra(int tamanhoPadrao, TabelaDeIndices indiceDaMascara,
+            long[] mascaras, int[] texto, int tamanhoTexto) {
+        long vp = ~0L;
+        long vn = 0;
+        long d0 = 0;
+        long pmAnterior = 0;
+        long ultimoBit = 1L << (tamanhoPadrao - 1);
+        int distancia = tamanhoPadrao;
+        for (int j = 0; j < tamanhoTexto; j++) {
+            int indice = indiceDaMascara.get(texto[j]);
+            long pm = indice < 0 ? 0 : mascaras[indice];
+            // transposições: casamento cruzado com o caracter anterior do texto
+            long tr = (((~d0) & pm) << 1) & pmAnterior;
+            d0 = (((pm & vp) + vp) ^ vp) | pm | vn | tr;
+            long hp = vn | ~(d0 | vp);
+            long hn = d0 & vp;
+            if ((hp & ultimoBit) != 0) {
+                distancia++;
+            } else if ((hn & ultimoBit) != 0) {
+                distancia--;
+            }
+            hp = (hp << 1) | 1;
+            hn = hn << 1;
+            vp = hn | ~(d0 | hp);
+            vn = hp & d0;
+            pmAnterior = pm;
+        }
+        return distancia;
+    }
+
+    /**
+     * @param vetores
+     *          room for the four bit vectors of every word, laid out as
+     *          {@code vp}, {@code vn}, {@code d0} and the previous column mask.
+     */
+    private static int calcularEmBlocos(int tamanhoPadrao, int palavras, TabelaDeIndices indiceDaMascara,
+            long[] mascaras, int[] texto, int tamanhoTexto, long[] vetores) {
+        int vp = 0;
+        int vn = palavras;
+        int d0 = 2 * palavras;
+        int pmAnterior = 3 * palavras;
+        Arrays.fill(vetores, vp, vn, ~0L);
+        Arrays.fill(vetores, vn, 4 * palavras, 0L);
+        long ultimoBit = 1L << ((tamanhoPadrao - 1) % TAMANHO_DA_PALAVRA);
+        int distancia = tamanhoPadrao;
+        for (int j = 0; j < tamanhoTexto; j++) {
+            int indice = indiceDaMascara.get(texto[j]);
+            int base = indice * palavras;
+            long hpCarry = 1;
+            long hnCarry = 0;
+            // valores da palavra anterior: d0 da coluna anterior e pm da coluna atual
+            long d0DaPalavraAnterior = 0;
+            long pmDaPalavraAnterior = 0;
+            for (int w = 0; w < palavras; w++) {
+                long pm = indice < 0 ? 0 : mascaras[base + w];
+                long vpW = vetores[vp + w];
+                long vnW = vetores[vn + w];
+                long d0W = vetores[d0 + w];
+                long tr = ((((~d0W) & pm) << 1) | (((~d0DaPalavraAnterior) & pmDaPalavraAnterior) >>> 63))
+                        & vetores[pmAnterior + w];
+                long x = pm | hnCarry;
+                long novoD0 = (((x & vpW) + vpW) ^ vpW) | x | vnW | tr;
+                long hp = vnW | ~(novoD0 | vpW);
+                long hn = novoD0 & vpW;
+                if (w == palavras - 1) {
+                    if ((hp & ultimoBit) != 0) {
+                        distancia++;
+                    } else if ((hn & ultimoBit) != 0) {
+                        distancia--;
+                    }
+                }
+                long hpEntrada = hpCarry;
+                long hnEntrada = hnCarry;
+                hpCarry = hp >>> 63;
+                hnCarry = hn >>> 63;
+                hp = (hp << 1) | hpEntrada;
+                hn = (hn << 1) | hnEntrada;
+                vetores[vp + w] = hn | ~(novoD0 | hp);
+                vetores[vn + w] = hp & novoD0;
+                d0DaPalavraAnterior = d0W;
+                pmDaPalavraAnterior = pm;
+                vetores[d0 + w] = novoD0;
+                vetores[pmAnterior + w] = pm;
+            }
+        }
+        return distancia;
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.bibiteix.damerau;
+
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * A kernel of the weighted {@link DamerauLevenshtein} recurrence that relies on
+ * vector instructions, shipped apart from the base library so that it still
+ * runs where the vector API is missing. {@link #DISPONIVEL} holds the first
+ * implementation registered as a service (the {@code simd} module provides
+ * one), or {@code null} when there is none or it cannot be linked, in which
+ * case the scalar kernels are used.
+ * <p>
+ * This is a service interface for the kernels; callers go through
+ * {@link DamerauLevenshtein}.
+ */
+public interface KernelVetorial {
+
+    /**
+     * Set this system property to {@code false} to keep to the scalar kernels.
+     */
+    String PROPRIEDADE = "damerau.simd";
+
+    KernelVetorial DISPONIVEL = Carregador.carregar();
+
+    /**
+     * Whether the kernel is worth calling for sequences of these lengths.
+     */
+    boolean compensa(int tamanhoPrimeira, int tamanhoSegunda);
+
+    /**
+     * Same result as the scalar recurrence of {@link DamerauLevenshtein} for
+     * non-empty sequences.
+     */
+    int calcularDistancia(int[] primeira, int tamanhoPrimeira, int[] segunda, int tamanhoSegunda,
+            int custoRemocao, int custoInsercao, int custoSubstituicao, int custoTroca,
+            Workspace workspace);
+
+    /**
+     * Whether the one-to-many kernel is worth calling for this query and this
+     * number of candidates.
+     */
+    boolean compensaEmLote(int tamanhoConsulta, int quantidadeDeCandidatos);
+
+    /**
+     * Writes into {@code resultado[i]} the same distance as the scalar
+     * recurrence from a non-empty query to the i-th candidate, or -1 for the
+     * candidates the kernel leaves to the caller.
+     */
+    void calcularDistancias(int[] consulta, int tamanhoConsulta, List<String> candidatos, int[] resultado,
+            int custoRemocao, int custoInsercao, int custoSubstituicao, int custoTroca,
+            Workspace workspace);
+
+    final class Carregador {
+
+        private Carregador() {
+        }
+
+        static KernelVetorial carregar() {
+            if (!Boolean.parseBoolean(System.getProperty(PROPRIEDADE, "true"))) {
+                return null;
+            }
+            try {
+                for (KernelVetorial kernel : ServiceLoader.load(KernelVetorial.class,
+                        KernelVetorial.class.getClassLoader())) {
+                    return kernel;
+                }
+                return null;
+            } catch (ServiceConfigurationError | LinkageError e) {
+                // o módulo jdk.incubator.vector não está disponível
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+
+/**
+ * Primitive map that gives every grapheme cluster an int symbol, so the
+ * kernels can compare clusters like characters.
+ * <p>
+ * A cluster made of a single code point is numbered by that code point. Longer
+ * clusters are copied into a pool of chars and numbered from
+ * {@link Character#MAX_CODE_POINT} + 1 up, in order of first appearance, so
+ * equal clusters get equal symbols and no cluster collides with a code point.
+ * Open addressing with linear probing, like {@link TabelaDeIndices}; a
+ * cleared table can be reused without allocating.
+ */
+final class TabelaDeGrafemas {
+
+    private static final int PRIMEIRO_SIMBOLO = Character.MAX_CODE_POINT + 1;
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    // os caracteres de cada cluster guardado, um após o outro
+    private char[] caracteres = new char[64];
+    // o cluster de número k ocupa caracteres[inicios[k]] até caracteres[inicios[k + 1]]
+    private int[] inicios = new int[CAPACIDADE_INICIAL + 1];
+    // número do cluster mais um, com 0 para vazio
+    private int[] slots = new int[CAPACIDADE_INICIAL];
+    private int quantidade;
+
+    /**
+     * The symbol of the cluster {@code texto[inicio, fim)}.
+     */
+    int numerar(String texto, int inicio, int fim) {
+        int primeiro = texto.codePointAt(inicio);
+        if (inicio + Character.charCount(primeiro) == fim) {
+            return primeiro;
+        }
+        if (2 * (quantidade + 1) > slots.length) {
+            crescer();
+        }
+        int mascara = slots.length - 1;
+        int slot = espalhar(texto, inicio, fim) & mascara;
+        while (slots[slot] != 0) {
+            int numero = slots[slot] - 1;
+            if (igual(numero, texto, inicio, fim)) {
+                return PRIMEIRO_SIMBOLO + numero;
+            }
+            slot = (slot + 1) & mascara;
+        }
+        guardar(texto, inicio, fim);
+        slots[slot] = quantidade;
+        return PRIMEIRO_SIMBOLO + quantidade - 1;
+    }
+
+    /**
+     * Forget every cluster, keeping the allocated storage.
+     */
+    void limpar() {
+        if (quantidade > 0) {
+            Arrays.fill(slots, 0);
+            quantidade = 0;
+        }
+    }
+
+    private boolean igual(int numero, String texto, int inicio, int fim) {
+        int deslocamento = inicios[numero];
+        if (inicios[numero + 1] - deslocamento != fim - inicio) {
+            return false;
+        }
+        for (int i = inicio; i < fim; i++) {
+            if (caracteres[deslocamento + i - inicio] != texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void guardar(String texto, int inicio, int fim) {
+        if (inicios.length < quantidade + 2) {
+            inicios = Arrays.copyOf(inicios, 2 * inicios.length);
+        }
+        int deslocamento = inicios[quantidade];
+        int fimNoPool = deslocamento + fim - inicio;
+        if (caracteres.length < fimNoPool) {
+            caracteres = Arrays.copyOf(caracteres, Math.max(fimNoPool, 2 * caracteres.length));
+        }
+        texto.getChars(inicio, fim, caracteres, deslocamento);
+        inicios[++quantidade] = fimNoPool;
+    }
+
+    private void crescer() {
+        slots = new int[slots.length * 2];
+        int mascara = slots.length - 1;
+        for (int numero = 0; numero < quantidade; numero++) {
+            int slot = espalhar(caracteres, inicios[numero], inicios[numero + 1]) & mascara;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mascara;
+            }
+            slots[slot] = numero + 1;
+        }
+    }
+
+    private static int espalhar(String texto, int inicio, int fim) {
+        int h = 0;
+        for (int i = inicio; i < fim; i++) {
+            h = 31 * h + texto.charAt(i);
+        }
+        return misturar(h);
+    }
+
+    private static int espalhar(char[] caracteres, int inicio, int fim) {
+        int h = 0;
+        for (int i = inicio; i < fim; i++) {
+            h = 31 * h + caracteres[i];
+        }
+        return misturar(h);
+    }
+
+    private static int misturar(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+
+/**
+ * Primitive map from a character to the last index at which it was seen.
+ * <p>
+ * Characters in the Latin-1 range are looked up in a dense array. Any other
+ * character falls back to a small open-addressing table (linear probing) that
+ * only grows with the number of distinct non Latin-1 characters, so a string
+ * with a sparse alphabet does not pay for the whole BMP. Keys are plain ints,
+ * so the table also serves token sequences with large vocabularies. Lookups
+ * never box, and a cleared table can be reused without allocating.
+ */
+final class TabelaDeIndices {
+
+    private static final int TAMANHO_DENSO = 256;
+    private static final int CAPACIDADE_INICIAL = 16;
+    private static final int LIVRE = Integer.MIN_VALUE;
+
+    private final int valorAusente;
+    private final int[] densos = new int[TAMANHO_DENSO];
+    private int[] chaves;
+    private int[] valores;
+    private int ocupados;
+    // a chave LIVRE não cabe na tabela aberta e fica à parte
+    private boolean temLivre;
+    private int valorDoLivre;
+
+    /**
+     * @param valorAusente
+     *          the value returned by {@link #get(int)} for characters that were
+     *          never stored.
+     */
+    TabelaDeIndices(int valorAusente) {
+        this.valorAusente = valorAusente;
+        this.chaves = new int[CAPACIDADE_INICIAL];
+        this.valores = new int[CAPACIDADE_INICIAL];
+        Arrays.fill(densos, valorAusente);
+        Arrays.fill(chaves, LIVRE);
+    }
+
+    int get(int caracter) {
+        if ((caracter & ~(TAMANHO_DENSO - 1)) == 0) {
+            return densos[caracter];
+        }
+        if (caracter == LIVRE) {
+            return temLivre ? valorDoLivre : valorAusente;
+        }
+        int mascara = chaves.length - 1;
+        int slot = espalhar(caracter) & mascara;
+        while (true) {
+            int chave = chaves[slot];
+            if (chave == caracter) {
+                return valores[slot];
+            }
+            if (chave == LIVRE) {
+                return valorAusente;
+            }
+            slot = (slot + 1) & mascara;
+        }
+    }
+
+    void put(int caracter, int valor) {
+        if ((caracter & ~(TAMANHO_DENSO - 1)) == 0) {
+            densos[caracter] = valor;
+            return;
+        }
+        if (caracter == LIVRE) {
+            temLivre = true;
+            valorDoLivre = valor;
+            return;
+        }
+        if (2 * (ocupados + 1) > chaves.length) {
+            crescer();
+        }
+        inserir(caracter, valor);
+    }
+
+    /**
+     * Forget every stored character, keeping the allocated storage.
+     */
+    void limpar() {
+        Arrays.fill(densos, valorAusente);
+        temLivre = false;
+        if (ocupados > 0) {
+            Arrays.fill(chaves, LIVRE);
+            ocupados = 0;
+        }
+    }
+
+    private void inserir(int caracter, int valor) {
+        int mascara = chaves.length - 1;
+        int slot = espalhar(caracter) & mascara;
+        while (chaves[slot] != LIVRE && chaves[slot] != caracter) {
+            slot = (slot + 1) & mascara;
+        }
+        if (chaves[slot] == LIVRE) {
+            chaves[slot] = caracter;
+            ocupados++;
+        }
+        valores[slot] = valor;
+    }
+
+    private void crescer() {
+        int[] chavesAntigas = chaves;
+        int[] valoresAntigos = valores;
+        chaves = new int[chavesAntigas.length * 2];
+        valores = new int[valoresAntigos.length * 2];
+        Arrays.fill(chaves, LIVRE);
+        ocupados = 0;
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (chavesAntigas[i] != LIVRE) {
+                inserir(chavesAntigas[i], valoresAntigos[i]);
+            }
+        }
+    }
+
+    private static int espalhar(int caracter) {
+        int h = caracter * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+
+/**
+ * Primitive map that numbers {@code long} tokens densely, from 0 in order of
+ * first appearance.
+ * <p>
+ * The kernels work on {@code int} symbols, so two {@code long[]} sequences are
+ * renumbered through this table before being compared: equal tokens get equal
+ * numbers and different tokens different ones, which is all the distances
+ * look at. Open addressing with linear probing, like {@link TabelaDeIndices};
+ * lookups never box, and a cleared table can be reused without allocating.
+ */
+final class TabelaDeTokens {
+
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    private long[] chaves = new long[CAPACIDADE_INICIAL];
+    // número do token mais um, com 0 para vazio
+    private int[] numeros = new int[CAPACIDADE_INICIAL];
+    private int quantidade;
+
+    /**
+     * The number of {@code token}, giving it the next free one if it was
+     * never seen since the last {@link #limpar()}.
+     */
+    int numerar(long token) {
+        if (2 * (quantidade + 1) > chaves.length) {
+            crescer();
+        }
+        int mascara = chaves.length - 1;
+        int slot = espalhar(token) & mascara;
+        while (numeros[slot] != 0) {
+            if (chaves[slot] == token) {
+                return numeros[slot] - 1;
+            }
+            slot = (slot + 1) & mascara;
+        }
+        chaves[slot] = token;
+        numeros[slot] = ++quantidade;
+        return quantidade - 1;
+    }
+
+    /**
+     * Forget every token, keeping the allocated storage.
+     */
+    void limpar() {
+        if (quantidade > 0) {
+            Arrays.fill(numeros, 0);
+            quantidade = 0;
+        }
+    }
+
+    private void crescer() {
+        long[] chavesAntigas = chaves;
+        int[] numerosAntigos = numeros;
+        chaves = new long[chavesAntigas.length * 2];
+        numeros = new int[numerosAntigos.length * 2];
+        int mascara = chaves.length - 1;
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (numerosAntigos[i] != 0) {
+                int slot = espalhar(chavesAntigas[i]) & mascara;
+                while (numeros[slot] != 0) {
+                    slot = (slot + 1) & mascara;
+                }
+                chaves[slot] = chavesAntigas[i];
+                numeros[slot] = numerosAntigos[i];
+            }
+        }
+    }
+
+    private static int espalhar(long token) {
+        long h = token * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,248 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The k candidates closest to a query, sorted by distance and then by their
+ * index among the candidates.
+ * <p>
+ * The best k found so far are kept in a bounded max-heap of packed
+ * {@code long}s, distance in the high half and index in the low half, so ties
+ * are broken by index and the result does not depend on the order in which
+ * candidates are visited. Once the heap is full, the distance at its top
+ * bounds the distance of the next candidates, which are abandoned as soon as
+ * they are known to be too far to enter; the bound only shrinks.
+ * <p>
+ * In parallel, the candidates are split into blocks of
+ * {@value #BLOCO_DE_CANDIDATOS} spread over a {@link ForkJoinPool}, as in
+ * {@link DistanceMatrix}. Every block keeps its own heap, and the smallest of
+ * their full tops is shared through an {@link AtomicInteger}, so a block that
+ * starts late is bounded by what the others already found.
+ */
+public final class TopK {
+
+    static final int BLOCO_DE_CANDIDATOS = 256;
+
+    private final int[] indices;
+    private final int[] distancias;
+
+    private TopK(long[] chaves) {
+        Arrays.sort(chaves);
+        this.indices = new int[chaves.length];
+        this.distancias = new int[chaves.length];
+        for (int r = 0; r < chaves.length; r++) {
+            indices[r] = (int) chaves[r];
+            distancias[r] = (int) (chaves[r] >>> 32);
+        }
+    }
+
+    /**
+     * The k candidates closest to the query, on the calling thread.
+     */
+    public static TopK calcular(String consulta, String[] candidatos, int k,
+            CalculadoraDeDistancia calculadora) {
+        verificar(k);
+        Heap heap = new Heap(k);
+        Workspace workspace = Workspace.daThreadAtual();
+        for (int i = 0; i < candidatos.length; i++) {
+            if (!heap.cheio()) {
+                heap.oferecer(chave(calculadora.distancia(consulta, candidatos[i], workspace), i));
+                continue;
+            }
+            // os índices só crescem, então um empate com o topo já não entra
+            int limite = heap.maiorDistancia() - 1;
+            if (limite < 0) {
+                break;
+            }
+            int distancia = calculadora.distancia(consulta, candidatos[i], limite, workspace);
+            if (distancia >= 0) {
+                heap.oferecer(chave(distancia, i));
+            }
+        }
+        return new TopK(heap.chaves());
+    }
+
+    /**
+     * The k candidates closest to the query, on the common fork-join pool.
+     */
+    public static TopK calcularEmParalelo(String consulta, String[] candidatos, int k,
+            CalculadoraDeDistancia calculadora) {
+        return calcularEmParalelo(consulta, candidatos, k, calculadora, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * The k candidates closest to the query, on the given pool. The result is
+     * the same as that of {@link #calcular}.
+     */
+    public static TopK calcularEmParalelo(String consulta, String[] candidatos, int k,
+            CalculadoraDeDistancia calculadora, ForkJoinPool pool) {
+        verificar(k);
+        int blocos = (candidatos.length + BLOCO_DE_CANDIDATOS - 1) / BLOCO_DE_CANDIDATOS;
+        if (blocos == 0) {
+            return new TopK(new long[0]);
+        }
+        AtomicInteger limite = new AtomicInteger(Integer.MAX_VALUE);
+        Heap heap = pool.invoke(new Tarefa(consulta, candidatos, k, calculadora, limite, 0, blocos));
+        return new TopK(heap.chaves());
+    }
+
+    private static void verificar(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+    }
+
+    private static long chave(int distancia, int indice) {
+        return (long) distancia << 32 | indice;
+    }
+
+    /**
+     * The number of candidates found, k unless there are fewer candidates.
+     */
+    public int tamanho() {
+        return indices.length;
+    }
+
+    /**
+     * The index among the candidates of the r-th closest one.
+     */
+    public int indice(int r) {
+        return indices[r];
+    }
+
+    /**
+     * The distance from the query to the r-th closest candidate.
+     */
+    public int distancia(int r) {
+        return distancias[r];
+    }
+
+    /**
+     * Max-heap of at most k packed keys.
+     */
+    private static final class Heap {
+
+        private final long[] chaves;
+        private int tamanho;
+
+        Heap(int k) {
+            this.chaves = new long[k];
+        }
+
+        boolean cheio() {
+            return tamanho == chaves.length;
+        }
+
+        int maiorDistancia() {
+            return (int) (chaves[0] >>> 32);
+        }
+
+        /**
+         * Keep the key if it is among the k smallest seen.
+         */
+        void oferecer(long chave) {
+            if (tamanho < chaves.length) {
+                int i = tamanho++;
+                // sobe enquanto for maior que o pai
+                while (i > 0 && chaves[(i - 1) >>> 1] < chave) {
+                    chaves[i] = chaves[(i - 1) >>> 1];
+                    i = (i - 1) >>> 1;
+                }
+                chaves[i] = chave;
+                return;
+            }
+            if (chave >= chaves[0]) {
+                return;
+            }
+            int i = 0;
+            // desce a nova chave a partir da raiz
+            while (true) {
+                int filho = 2 * i + 1;
+                if (filho >= tamanho) {
+                    break;
+                }
+                if (filho + 1 < tamanho && chaves[filho + 1] > chaves[filho]) {
+                    filho++;
+                }
+                if (chaves[filho] <= chave) {
+                    break;
+                }
+                chaves[i] = chaves[filho];
+                i = filho;
+            }
+            chaves[i] = chave;
+        }
+
+        void juntar(Heap outro) {
+            for (int i = 0; i < outro.tamanho; i++) {
+                oferecer(outro.chaves[i]);
+            }
+        }
+
+        long[] chaves() {
+            return Arrays.copyOf(chaves, tamanho);
+        }
+    }
+
+    /**
+     * A range of candidate blocks.
+     */
+    private static final class Tarefa extends RecursiveTask<Heap> {
+
+        private final String consulta;
+        private final String[] candidatos;
+        private final int k;
+        private final CalculadoraDeDistancia calculadora;
+        private final AtomicInteger limite;
+        private final int inicio;
+        private final int fim;
+
+        Tarefa(String consulta, String[] candidatos, int k, CalculadoraDeDistancia calculadora,
+                AtomicInteger limite, int inicio, int fim) {
+            this.consulta = consulta;
+            this.candidatos = candidatos;
+            this.k = k;
+            this.calculadora = calculadora;
+            this.limite = limite;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Heap compute() {
+            if (fim - inicio > 1) {
+                int meio = (inicio + fim) >>> 1;
+                Tarefa primeira = new Tarefa(consulta, candidatos, k, calculadora, limite, inicio, meio);
+                Tarefa segunda = new Tarefa(consulta, candidatos, k, calculadora, limite, meio, fim);
+                segunda.fork();
+                Heap heap = primeira.compute();
+                heap.juntar(segunda.join());
+                return heap;
+            }
+            Heap heap = new Heap(k);
+            Workspace workspace = Workspace.daThreadAtual();
+            int ultimo = Math.min(candidatos.length, fim * BLOCO_DE_CANDIDATOS);
+            for (int i = inicio * BLOCO_DE_CANDIDATOS; i < ultimo; i++) {
+                // empates com o limite ainda entram se o índice for menor
+                int limiteAtual = limite.get();
+                if (heap.cheio()) {
+                    limiteAtual = Math.min(limiteAtual, heap.maiorDistancia());
+                }
+                int distancia = limiteAtual == Integer.MAX_VALUE
+                        ? calculadora.distancia(consulta, candidatos[i], workspace)
+                        : calculadora.distancia(consulta, candidatos[i], limiteAtual, workspace);
+                if (distancia < 0) {
+                    continue;
+                }
+                heap.oferecer(chave(distancia, i));
+                if (heap.cheio() && heap.maiorDistancia() < limite.get()) {
+                    limite.accumulateAndGet(heap.maiorDistancia(), Math::min);
+                }
+            }
+            return heap;
+        }
+    }
+}
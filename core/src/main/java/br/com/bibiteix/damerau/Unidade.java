@@ -0,0 +1,34 @@
+package br.com.bibiteix.damerau;
+
+/**
+ * What counts as one character when a calculator compares two strings.
+ * <p>
+ * Outside {@link #UTF16} the strings are decoded once into the
+ * {@link Workspace} and the same kernels run on the decoded symbols. Strings
+ * in which every {@code char} is already a whole symbol (no surrogates for
+ * {@link #PONTO_DE_CODIGO}; nothing past Latin-1 combining with its
+ * neighbours for {@link #GRAFEMA}) skip the decoding and are copied as
+ * {@code char}s, so the common case costs the same as {@link #UTF16}.
+ */
+public enum Unidade {
+
+    /**
+     * Every UTF-16 {@code char} is a character, so a supplementary character
+     * such as an emoji counts as two. The default, and the cheapest.
+     */
+    UTF16,
+
+    /**
+     * Every Unicode code point is a character: a surrogate pair is one
+     * symbol and can never be split or half transposed.
+     */
+    PONTO_DE_CODIGO,
+
+    /**
+     * Every extended grapheme cluster, as matched by {@code \X} in
+     * {@link java.util.regex.Pattern}, is a character: a letter with its
+     * combining marks, a flag or an emoji sequence joined by ZWJ is one
+     * symbol. Needs Java 9 or later, where {@code Pattern} knows {@code \X}.
+     */
+    GRAFEMA
+}
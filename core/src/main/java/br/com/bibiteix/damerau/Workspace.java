@@ -0,0 +1,390 @@
+package br.com.bibiteix.damerau;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scratch memory reused across distance computations.
+ * <p>
+ * Every buffer only grows, so once a workspace has seen the largest inputs of
+ * a workload the calculators stop allocating. A workspace must not be shared
+ * between threads; {@link #daThreadAtual()} hands out one per thread, and is
+ * what the overloads of {@link DamerauLevenshtein} and {@link DL2} without an
+ * explicit workspace use.
+ */
+public final class Workspace {
+
+    private static final ThreadLocal<Workspace> DA_THREAD = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    private static final int[][] SEM_LINHAS = new int[0][];
+    // abaixo daqui nenhum caracter se combina com os vizinhos, fora o par CR LF
+    private static final char PRIMEIRA_MARCA_COMBINANTE = '\u0300';
+
+    // índices dos caracteres, com -1 para ausente
+    final TabelaDeIndices indices = new TabelaDeIndices(-1);
+    // índices dos caracteres, com 0 para ausente (linhas de H começam em 1)
+    final TabelaDeIndices indicesAPartirDeUm = new TabelaDeIndices(0);
+    final TabelaDeIndices linhasPorCaracter = new TabelaDeIndices(-1);
+    final TabelaDeIndices mascarasPorCaracter = new TabelaDeIndices(-1);
+
+    // renumera os tokens long[] para os kernels, que trabalham com int
+    private final TabelaDeTokens tokens = new TabelaDeTokens();
+    private final TabelaDeGrafemas grafemas = new TabelaDeGrafemas();
+    private Matcher separadorDeGrafemas;
+
+    private int[] primeira = new int[0];
+    private int[] segunda = new int[0];
+    int tamanhoPrimeira;
+    int tamanhoSegunda;
+    // símbolos do prefixo e do sufixo comuns deixados de fora pelo último carregar
+    int recortados;
+
+    private int[][] linhas = SEM_LINHAS;
+    private long[] mascaras = new long[0];
+    private long[] vetores = new long[0];
+    private final Map<Class<?>, Object> rascunhos = new IdentityHashMap<Class<?>, Object>();
+
+    /**
+     * The workspace confined to the calling thread.
+     */
+    public static Workspace daThreadAtual() {
+        return DA_THREAD.get();
+    }
+
+    /**
+     * Copy both strings into the sequence buffers, setting
+     * {@link #tamanhoPrimeira}, {@link #tamanhoSegunda} and
+     * {@link #recortados}. When
+     * {@code recortar} is set, the common prefix and suffix are left out,
+     * except for the last {@code margemDoPrefixo} characters of the prefix.
+     */
+    void carregar(String primeiraString, String segundaString, boolean recortar,
+            int margemDoPrefixo) {
+        int inicio = 0;
+        int fimPrimeira = primeiraString.length();
+        int fimSegunda = segundaString.length();
+        if (recortar) {
+            while (inicio < fimPrimeira && inicio < fimSegunda
+                    && primeiraString.charAt(inicio) == segundaString.charAt(inicio)) {
+                inicio++;
+            }
+            while (fimPrimeira > inicio && fimSegunda > inicio
+                    && primeiraString.charAt(fimPrimeira - 1) == segundaString.charAt(fimSegunda - 1)) {
+                fimPrimeira--;
+                fimSegunda--;
+            }
+            inicio = Math.max(0, inicio - margemDoPrefixo);
+        }
+        tamanhoPrimeira = fimPrimeira - inicio;
+        tamanhoSegunda = fimSegunda - inicio;
+        recortados = primeiraString.length() - tamanhoPrimeira;
+        primeira = copiar(primeiraString, inicio, tamanhoPrimeira, primeira);
+        segunda = copiar(segundaString, inicio, tamanhoSegunda, segunda);
+    }
+
+    /**
+     * Same as {@link #carregar(String, String, boolean, int)}, counting
+     * characters as the given unit. Strings that need no decoding in that unit
+     * are copied as they are; the others are decoded once, and the prefix and
+     * suffix are then trimmed on whole symbols.
+     */
+    void carregar(String primeiraString, String segundaString, boolean recortar,
+            int margemDoPrefixo, Unidade unidade) {
+        if (dispensaDecodificacao(primeiraString, unidade)
+                && dispensaDecodificacao(segundaString, unidade)) {
+            carregar(primeiraString, segundaString, recortar, margemDoPrefixo);
+            return;
+        }
+        grafemas.limpar();
+        primeira = reservar(primeira, primeiraString.length());
+        segunda = reservar(segunda, segundaString.length());
+        tamanhoPrimeira = decodificar(primeiraString, unidade, primeira);
+        tamanhoSegunda = decodificar(segundaString, unidade, segunda);
+        recortados = 0;
+        if (recortar) {
+            recortarCarregadas(margemDoPrefixo);
+        }
+    }
+
+    /**
+     * Same as {@link #carregar(String, String, boolean, int)}, for sequences
+     * of int tokens.
+     */
+    void carregar(int[] primeiraSequencia, int[] segundaSequencia, boolean recortar,
+            int margemDoPrefixo) {
+        tamanhoPrimeira = primeiraSequencia.length;
+        tamanhoSegunda = segundaSequencia.length;
+        primeira = reservar(primeira, tamanhoPrimeira);
+        segunda = reservar(segunda, tamanhoSegunda);
+        System.arraycopy(primeiraSequencia, 0, primeira, 0, tamanhoPrimeira);
+        System.arraycopy(segundaSequencia, 0, segunda, 0, tamanhoSegunda);
+        recortados = 0;
+        if (recortar) {
+            recortarCarregadas(margemDoPrefixo);
+        }
+    }
+
+    /**
+     * Same as {@link #carregar(String, String, boolean, int)}, for sequences
+     * of long tokens. The tokens are renumbered densely, since the kernels
+     * only compare them for equality.
+     */
+    void carregar(long[] primeiraSequencia, long[] segundaSequencia, boolean recortar,
+            int margemDoPrefixo) {
+        tamanhoPrimeira = primeiraSequencia.length;
+        tamanhoSegunda = segundaSequencia.length;
+        primeira = reservar(primeira, tamanhoPrimeira);
+        segunda = reservar(segunda, tamanhoSegunda);
+        tokens.limpar();
+        for (int i = 0; i < tamanhoPrimeira; i++) {
+            primeira[i] = tokens.numerar(primeiraSequencia[i]);
+        }
+        for (int j = 0; j < tamanhoSegunda; j++) {
+            segunda[j] = tokens.numerar(segundaSequencia[j]);
+        }
+        recortados = 0;
+        if (recortar) {
+            recortarCarregadas(margemDoPrefixo);
+        }
+    }
+
+    /**
+     * Same as {@link #carregar(String, String, boolean, int)}, for sequences
+     * of unsigned bytes.
+     */
+    void carregar(byte[] primeiraSequencia, byte[] segundaSequencia, boolean recortar,
+            int margemDoPrefixo) {
+        tamanhoPrimeira = primeiraSequencia.length;
+        tamanhoSegunda = segundaSequencia.length;
+        primeira = reservar(primeira, tamanhoPrimeira);
+        segunda = reservar(segunda, tamanhoSegunda);
+        for (int i = 0; i < tamanhoPrimeira; i++) {
+            primeira[i] = primeiraSequencia[i] & 0xFF;
+        }
+        for (int j = 0; j < tamanhoSegunda; j++) {
+            segunda[j] = segundaSequencia[j] & 0xFF;
+        }
+        recortados = 0;
+        if (recortar) {
+            recortarCarregadas(margemDoPrefixo);
+        }
+    }
+
+    /**
+     * Drop the common prefix and suffix of the loaded sequences, except for
+     * the last {@code margemDoPrefixo} symbols of the prefix.
+     */
+    private void recortarCarregadas(int margemDoPrefixo) {
+        int tamanhoAntes = tamanhoPrimeira;
+        int inicio = 0;
+        while (inicio < tamanhoPrimeira && inicio < tamanhoSegunda
+                && primeira[inicio] == segunda[inicio]) {
+            inicio++;
+        }
+        while (tamanhoPrimeira > inicio && tamanhoSegunda > inicio
+                && primeira[tamanhoPrimeira - 1] == segunda[tamanhoSegunda - 1]) {
+            tamanhoPrimeira--;
+            tamanhoSegunda--;
+        }
+        inicio = Math.max(0, inicio - margemDoPrefixo);
+        if (inicio > 0) {
+            tamanhoPrimeira -= inicio;
+            tamanhoSegunda -= inicio;
+            System.arraycopy(primeira, inicio, primeira, 0, tamanhoPrimeira);
+            System.arraycopy(segunda, inicio, segunda, 0, tamanhoSegunda);
+        }
+        recortados = tamanhoAntes - tamanhoPrimeira;
+    }
+
+    /**
+     * Copy only the first sequence, leaving the second one untouched, so that a
+     * query can be loaded once and compared with many candidates.
+     */
+    void carregarPrimeira(String primeiraString, Unidade unidade) {
+        if (dispensaDecodificacao(primeiraString, unidade)) {
+            tamanhoPrimeira = primeiraString.length();
+            primeira = copiar(primeiraString, 0, tamanhoPrimeira, primeira);
+            return;
+        }
+        // os clusters da consulta e de todos os candidatos que vierem depois são numerados juntos
+        grafemas.limpar();
+        primeira = reservar(primeira, primeiraString.length());
+        tamanhoPrimeira = decodificar(primeiraString, unidade, primeira);
+    }
+
+    /**
+     * Copy only the second sequence, leaving the first one untouched.
+     */
+    void carregarSegunda(String segundaString, Unidade unidade) {
+        if (dispensaDecodificacao(segundaString, unidade)) {
+            tamanhoSegunda = segundaString.length();
+            segunda = copiar(segundaString, 0, tamanhoSegunda, segunda);
+            return;
+        }
+        segunda = reservar(segunda, segundaString.length());
+        tamanhoSegunda = decodificar(segundaString, unidade, segunda);
+    }
+
+    /**
+     * Whether every char of the string is already a whole character in the
+     * given unit.
+     */
+    private static boolean dispensaDecodificacao(String string, Unidade unidade) {
+        if (unidade == Unidade.UTF16) {
+            return true;
+        }
+        if (unidade == Unidade.PONTO_DE_CODIGO) {
+            for (int i = 0; i < string.length(); i++) {
+                if (Character.isSurrogate(string.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < string.length(); i++) {
+            char caracter = string.charAt(i);
+            if (caracter >= PRIMEIRA_MARCA_COMBINANTE || caracter == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode the string into {@code destino}, which has room for one symbol
+     * per char, and return the number of symbols.
+     */
+    private int decodificar(String string, Unidade unidade, int[] destino) {
+        int tamanho = 0;
+        if (unidade == Unidade.PONTO_DE_CODIGO) {
+            for (int i = 0; i < string.length(); ) {
+                int pontoDeCodigo = string.codePointAt(i);
+                destino[tamanho++] = pontoDeCodigo;
+                i += Character.charCount(pontoDeCodigo);
+            }
+            return tamanho;
+        }
+        if (separadorDeGrafemas == null) {
+            separadorDeGrafemas = Grafemas.PADRAO.matcher(string);
+        } else {
+            separadorDeGrafemas.reset(string);
+        }
+        while (separadorDeGrafemas.find()) {
+            destino[tamanho++] = grafemas.numerar(string, separadorDeGrafemas.start(),
+                    separadorDeGrafemas.end());
+        }
+        // não guarda a string depois da chamada
+        separadorDeGrafemas.reset("");
+        return tamanho;
+    }
+
+    private static int[] copiar(String string, int inicio, int tamanho, int[] destino) {
+        destino = reservar(destino, tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            destino[i] = string.charAt(inicio + i);
+        }
+        return destino;
+    }
+
+    private static int[] reservar(int[] destino, int tamanho) {
+        if (destino.length < tamanho) {
+            destino = new int[Math.max(tamanho, 2 * destino.length)];
+        }
+        return destino;
+    }
+
+    /**
+     * The first sequence loaded by the last call to {@code carregar}.
+     */
+    int[] primeira() {
+        return primeira;
+    }
+
+    /**
+     * The second sequence loaded by the last call to {@code carregar}.
+     */
+    int[] segunda() {
+        return segunda;
+    }
+
+    /**
+     * At least {@code quantidade} rows, each with room for at least
+     * {@code tamanho} cells. Contents are left over from previous calls.
+     */
+    int[][] linhas(int quantidade, int tamanho) {
+        if (linhas.length < quantidade) {
+            int[][] novas = new int[Math.max(quantidade, 2 * linhas.length)][];
+            System.arraycopy(linhas, 0, novas, 0, linhas.length);
+            linhas = novas;
+        }
+        for (int i = 0; i < quantidade; i++) {
+            if (linhas[i] == null || linhas[i].length < tamanho) {
+                linhas[i] = new int[tamanho];
+            }
+        }
+        return linhas;
+    }
+
+    /**
+     * Room for at least {@code tamanho} character masks. Growing keeps the
+     * masks already stored.
+     */
+    long[] mascaras(int tamanho) {
+        if (mascaras.length < tamanho) {
+            mascaras = Arrays.copyOf(mascaras, Math.max(tamanho, 2 * mascaras.length));
+        }
+        return mascaras;
+    }
+
+    /**
+     * The scratch object of one kernel in this workspace, made by
+     * {@code criar} on first use. Each kernel keys its own class and keeps
+     * the buffers it needs in its fields, so no two kernels share a buffer.
+     * Also used by the {@link KernelVetorial} implementations.
+     */
+    public <T> T rascunho(Class<T> tipo, Supplier<? extends T> criar) {
+        Object rascunho = rascunhos.get(tipo);
+        if (rascunho == null) {
+            rascunho = criar.get();
+            rascunhos.put(tipo, rascunho);
+        }
+        return tipo.cast(rascunho);
+    }
+
+    /**
+     * {@code buffer} itself when it holds at least {@code tamanho} ints, or a
+     * larger one otherwise, for the buffers of a {@link #rascunho}. Contents
+     * are not kept.
+     */
+    public static int[] comEspaco(int[] buffer, int tamanho) {
+        if (buffer.length >= tamanho) {
+            return buffer;
+        }
+        return new int[Math.max(tamanho, 2 * buffer.length)];
+    }
+
+    /**
+     * Room for at least {@code tamanho} bit vectors. Contents are left over
+     * from previous calls.
+     */
+    long[] vetores(int tamanho) {
+        if (vetores.length < tamanho) {
+            vetores = new long[Math.max(tamanho, 2 * vetores.length)];
+        }
+        return vetores;
+    }
+
+    // \X só existe a partir do Java 9: compilado no primeiro uso de GRAFEMA, para o resto rodar no 8
+    private static final class Grafemas {
+        static final Pattern PADRAO = Pattern.compile("\\X");
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.bibiteix.damerau;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class AlinhamentoTest {
+
+    @Test
+    void oScriptLevaAPrimeiraNaSegundaPeloCustoDeLowranceWagner() {
+        Random aleatorio = new Random(1);
+        for (int caso = 0; caso < 20000; caso++) {
+            int remocao = 1 + aleatorio.nextInt(4);
+            int insercao = 1 + aleatorio.nextInt(4);
+            int substituicao = 1 + aleatorio.nextInt(6);
+            int troca = Math.max((remocao + insercao + 1) / 2, 1 + aleatorio.nextInt(6));
+            boolean unitarios = caso % 3 == 0;
+            if (unitarios) {
+                remocao = insercao = substituicao = troca = 1;
+            }
+            int alfabeto = 1 + aleatorio.nextInt(5);
+            int tamanho = caso % 50 == 0 ? 400 : 12;
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto);
+            String b = Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto);
+            DamerauLevenshtein distancia = new DamerauLevenshtein(remocao, insercao, substituicao, troca);
+            Alinhamento alinhamento = distancia.calcularAlinhamentoLowranceWagner(a, b);
+
+            assertEquals(alinhamento.custo(),
+                    aplicar(a, b, alinhamento, remocao, insercao, substituicao, troca));
+            if (tamanho == 12) {
+                assertEquals(Referencias.lowranceWagner(a, b, remocao, insercao, substituicao, troca),
+                        alinhamento.custo());
+            }
+            if (unitarios) {
+                assertEquals(distancia.calcularDistancia(a, b), alinhamento.custo());
+            }
+        }
+    }
+
+    /**
+     * Pairs on which the first row and column of calcularDistancia give a
+     * cost no script has: 5 where 3 is possible, and 35 where 36 is needed.
+     */
+    @Test
+    void podeDiferirDeCalcularDistanciaComOutrosPesos() {
+        DamerauLevenshtein distancia = new DamerauLevenshtein(1, 3, 4, 2);
+        assertEquals(5, distancia.calcularDistancia("bbabbbabba", "abbbbabba"));
+        assertEquals(3, distancia.calcularAlinhamentoLowranceWagner("bbabbbabba", "abbbbabba").custo());
+
+        distancia = new DamerauLevenshtein(4, 1, 3, 3);
+        assertEquals(35, distancia.calcularDistancia("abbbbabbbba", "ab"));
+        assertEquals(36, distancia.calcularAlinhamentoLowranceWagner("abbbbabbbba", "ab").custo());
+        assertEquals(36, Referencias.lowranceWagner("abbbbabbbba", "ab", 4, 1, 3, 3));
+    }
+
+    /**
+     * Apply the script to the first string, checking that it yields the
+     * second one and that every operation is well formed, and return the
+     * cost of the operations.
+     */
+    private static int aplicar(String primeira, String segunda, Alinhamento alinhamento, int remocao,
+            int insercao, int substituicao, int troca) {
+        StringBuilder saida = new StringBuilder();
+        int lidos = 0;
+        int custo = 0;
+        for (int k = 0; k < alinhamento.tamanho(); k++) {
+            int operacao = alinhamento.operacao(k);
+            int i = alinhamento.posicaoNaPrimeira(k);
+            int j = alinhamento.posicaoNaSegunda(k);
+            assertTrue(i >= lidos);
+            // os caracteres antes da operação são mantidos
+            saida.append(primeira, lidos, i);
+            lidos = i;
+            assertEquals(saida.length(), j);
+            switch (operacao) {
+            case Alinhamento.REMOCAO:
+                lidos++;
+                custo += remocao;
+                break;
+            case Alinhamento.INSERCAO:
+                saida.append(segunda.charAt(j));
+                custo += insercao;
+                break;
+            case Alinhamento.SUBSTITUICAO:
+                assertTrue(primeira.charAt(i) != segunda.charAt(j));
+                saida.append(segunda.charAt(j));
+                lidos++;
+                custo += substituicao;
+                break;
+            default:
+                // as remoções e inserções entre os dois caracteres vêm logo depois da troca
+                int removidos = 0;
+                while (k + 1 < alinhamento.tamanho() && alinhamento.operacao(k + 1) == Alinhamento.REMOCAO
+                        && alinhamento.posicaoNaPrimeira(k + 1) == i + 1 + removidos
+                        && alinhamento.posicaoNaSegunda(k + 1) == j + 1) {
+                    k++;
+                    removidos++;
+                }
+                int inseridos = 0;
+                while (k + 1 < alinhamento.tamanho() && alinhamento.operacao(k + 1) == Alinhamento.INSERCAO
+                        && alinhamento.posicaoNaPrimeira(k + 1) == i + 1
+                        && alinhamento.posicaoNaSegunda(k + 1) == j + 1 + inseridos) {
+                    k++;
+                    inseridos++;
+                }
+                int segundoNaPrimeira = i + 1 + removidos;
+                int segundoNaSegunda = j + 1 + inseridos;
+                assertEquals(primeira.charAt(i), segunda.charAt(segundoNaSegunda));
+                assertEquals(primeira.charAt(segundoNaPrimeira), segunda.charAt(j));
+                saida.append(primeira.charAt(segundoNaPrimeira))
+                        .append(segunda, j + 1, segundoNaSegunda)
+                        .append(primeira.charAt(i));
+                lidos = segundoNaPrimeira + 1;
+                custo += troca + removidos * remocao + inseridos * insercao;
+            }
+        }
+        saida.append(primeira, lidos, primeira.length());
+        assertEquals(segunda, saida.toString());
+        return custo;
+    }
+}
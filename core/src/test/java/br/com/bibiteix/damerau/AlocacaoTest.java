@@ -0,0 +1,111 @@
+package br.com.bibiteix.damerau;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Steady-state calls through {@link Workspace#daThreadAtual()} allocate
+ * nothing once the buffers have grown, as counted by the JVM for the
+ * current thread.
+ */
+class AlocacaoTest {
+
+    private static final int AQUECIMENTO = 20000;
+    private static final int MEDIDAS = 2000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void damerauLevenshteinNaoAloca() {
+        DamerauLevenshtein unitaria = new DamerauLevenshtein(1, 1, 1, 1);
+        DamerauLevenshtein comPesos = new DamerauLevenshtein(2, 3, 4, 3);
+        DamerauLevenshtein pontosDeCodigo = new DamerauLevenshtein(1, 1, 1, 1, Unidade.PONTO_DE_CODIGO);
+        String[] textos = textos();
+        List<String> candidatos = new ArrayList<String>();
+        for (int i = 1; i < textos.length; i++) {
+            candidatos.add(textos[i]);
+        }
+        int[] resultado = new int[candidatos.size()];
+        assertEquals(0, bytesAlocados(i -> {
+            String a = textos[i % textos.length];
+            String b = textos[(i + 1) % textos.length];
+            long soma = unitaria.calcularDistancia(a, b) + comPesos.calcularDistancia(a, b)
+                    + unitaria.calcularDistancia(a, b, 3) + comPesos.calcularDistancia(a, b, 6)
+                    + pontosDeCodigo.calcularDistancia(a, b);
+            if (i % 16 == 0) {
+                unitaria.calcularDistancias(a, candidatos, resultado, Workspace.daThreadAtual());
+            }
+            return soma;
+        }));
+    }
+
+    @Test
+    void dl2NaoAloca() {
+        DL2 distancia = new DL2();
+        DL2 pontosDeCodigo = new DL2(Unidade.PONTO_DE_CODIGO);
+        String[] textos = textos();
+        List<String> candidatos = new ArrayList<String>();
+        for (int i = 1; i < textos.length; i++) {
+            candidatos.add(textos[i]);
+        }
+        double[] resultado = new double[candidatos.size()];
+        assertEquals(0, bytesAlocados(i -> {
+            String a = textos[i % textos.length];
+            String b = textos[(i + 1) % textos.length];
+            Workspace workspace = Workspace.daThreadAtual();
+            long soma = (long) distancia.calcularDistancia(a, b) + distancia.distancia(a, b, 3, workspace)
+                    + (long) pontosDeCodigo.calcularDistancia(a, b);
+            if (i % 16 == 0) {
+                distancia.calcularDistancias(a, candidatos, resultado, workspace);
+            }
+            return soma;
+        }));
+    }
+
+    /**
+     * Short and long strings, some past one 64-bit word, some with emoji, so
+     * that every kernel and both decodings run.
+     */
+    private static String[] textos() {
+        Random aleatorio = new Random(3);
+        String[] textos = new String[24];
+        for (int i = 0; i < textos.length; i++) {
+            String texto = Referencias.aleatoria(aleatorio, i % 3 == 0 ? 150 : 5 + aleatorio.nextInt(20), 6);
+            textos[i] = i % 4 == 0 ? texto + "😀" : texto;
+        }
+        return textos;
+    }
+
+    private interface Chamada {
+        long chamar(int i);
+    }
+
+    /**
+     * Bytes allocated by the current thread over the measured calls, after
+     * enough calls for the buffers to grow and the JIT to compile them.
+     */
+    private long bytesAlocados(Chamada chamada) {
+        long soma = 0;
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            soma += chamada.chamar(i);
+        }
+        long id = Thread.currentThread().getId();
+        long antes = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < MEDIDAS; i++) {
+            soma += chamada.chamar(i);
+        }
+        long depois = threads.getThreadAllocatedBytes(id);
+        // usa o resultado, para as chamadas não serem eliminadas
+        if (soma == 42) {
+            System.out.println(soma);
+        }
+        return depois - antes;
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.bibiteix.damerau;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DL2Test {
+
+    @Test
+    void concordaComAMatrizCompleta() {
+        Random aleatorio = new Random(7);
+        DL2 distancia = new DL2();
+        for (int caso = 0; caso < 100000; caso++) {
+            int alfabeto = 1 + aleatorio.nextInt(6);
+            int tamanho = caso % 100 == 0 ? 150 : 10;
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto);
+            String b = aleatorio.nextInt(3) == 0
+                    ? Referencias.alterada(aleatorio, a, aleatorio.nextInt(5), alfabeto)
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto);
+            int esperada = Referencias.dl2(a, b);
+            assertEquals(esperada, distancia.calcularDistancia(a, b), () -> a + " / " + b);
+            int maxDistancia = aleatorio.nextInt(6);
+            assertEquals(esperada <= maxDistancia ? esperada : -1,
+                    distancia.calcularDistancia(a, b, maxDistancia));
+        }
+    }
+
+    @Test
+    void similaridadeUsaAStringMaisLonga() {
+        Random aleatorio = new Random(3);
+        DL2 distancia = new DL2();
+        for (int caso = 0; caso < 20000; caso++) {
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(30), 1 + aleatorio.nextInt(5));
+            String b = aleatorio.nextInt(4) == 0 ? a
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(30), 1 + aleatorio.nextInt(5));
+            int maior = Math.max(a.length(), b.length());
+            double similaridade = maior == 0 ? 1 : 1 - distancia.calcularDistancia(a, b) / maior;
+            assertEquals(similaridade, distancia.calcularSimilaridade(a, b));
+            // o limite exato ainda aceita o par
+            assertEquals(similaridade, distancia.calcularSimilaridade(a, b, similaridade));
+            double minimo = aleatorio.nextDouble();
+            assertEquals(similaridade >= minimo ? similaridade : -1,
+                    distancia.calcularSimilaridade(a, b, minimo));
+        }
+    }
+
+    @Test
+    void similaridadeContaGrafemas() {
+        // "été" com o acento combinado contra "eté": uma substituição em três grafemas
+        assertEquals(1 - 1.0 / 3, new DL2(Unidade.GRAFEMA).calcularSimilaridade("été", "eté"));
+    }
+}
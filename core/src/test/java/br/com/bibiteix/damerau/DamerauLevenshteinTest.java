@@ -0,0 +1,100 @@
+package br.com.bibiteix.damerau;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DamerauLevenshteinTest {
+
+    @Test
+    void concordaComAMatrizCompleta() {
+        Random aleatorio = new Random(7);
+        for (int caso = 0; caso < 100000; caso++) {
+            int remocao = aleatorio.nextInt(5);
+            int insercao = aleatorio.nextInt(5);
+            int substituicao = aleatorio.nextInt(6);
+            int troca = Math.max((remocao + insercao + 1) / 2, aleatorio.nextInt(6));
+            int alfabeto = 1 + aleatorio.nextInt(6);
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(10), alfabeto);
+            String b = aleatorio.nextInt(3) == 0
+                    ? Referencias.alterada(aleatorio, a, aleatorio.nextInt(4), alfabeto)
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(10), alfabeto);
+            DamerauLevenshtein distancia = new DamerauLevenshtein(remocao, insercao, substituicao, troca);
+            assertEquals(Referencias.stern(a, b, remocao, insercao, substituicao, troca),
+                    distancia.calcularDistancia(a, b),
+                    () -> a + " / " + b + " com custos " + remocao + insercao + substituicao + troca);
+        }
+    }
+
+    @Test
+    void concordaComAMatrizCompletaEmStringsLongas() {
+        Random aleatorio = new Random(11);
+        for (int caso = 0; caso < 300; caso++) {
+            boolean unitarios = caso % 2 == 0;
+            int remocao = unitarios ? 1 : 1 + aleatorio.nextInt(3);
+            int insercao = unitarios ? 1 : 1 + aleatorio.nextInt(3);
+            int substituicao = unitarios ? 1 : 1 + aleatorio.nextInt(4);
+            int troca = unitarios ? 1 : Math.max((remocao + insercao + 1) / 2, 1 + aleatorio.nextInt(4));
+            int alfabeto = 2 + aleatorio.nextInt(20);
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(200), alfabeto);
+            String b = aleatorio.nextBoolean()
+                    ? Referencias.alterada(aleatorio, a, aleatorio.nextInt(20), alfabeto)
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(200), alfabeto);
+            DamerauLevenshtein distancia = new DamerauLevenshtein(remocao, insercao, substituicao, troca);
+            int esperada = Referencias.stern(a, b, remocao, insercao, substituicao, troca);
+            assertEquals(esperada, distancia.calcularDistancia(a, b));
+            assertEquals(esperada, distancia.calcularDistanciaEmEspacoLinear(a, b));
+        }
+    }
+
+    @Test
+    void distanciaLimitadaDevolveMenosUmAcimaDoLimite() {
+        Random aleatorio = new Random(13);
+        for (int caso = 0; caso < 50000; caso++) {
+            int remocao = aleatorio.nextInt(5);
+            int insercao = aleatorio.nextInt(5);
+            int substituicao = aleatorio.nextInt(6);
+            int troca = Math.max((remocao + insercao + 1) / 2, aleatorio.nextInt(6));
+            int tamanho = caso % 50 == 0 ? 40 : 10;
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho + 1), 4);
+            String b = aleatorio.nextInt(3) == 0
+                    ? Referencias.alterada(aleatorio, a, aleatorio.nextInt(4), 4)
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho + 1), 4);
+            int maxDistancia = aleatorio.nextInt(12);
+            int esperada = Referencias.stern(a, b, remocao, insercao, substituicao, troca);
+            assertEquals(esperada <= maxDistancia ? esperada : -1,
+                    new DamerauLevenshtein(remocao, insercao, substituicao, troca)
+                            .calcularDistancia(a, b, maxDistancia));
+        }
+    }
+
+    @Test
+    void similaridadeUsaAMaiorDistanciaPossivel() {
+        Random aleatorio = new Random(3);
+        for (int caso = 0; caso < 20000; caso++) {
+            boolean unitarios = aleatorio.nextBoolean();
+            int remocao = unitarios ? 1 : 1 + aleatorio.nextInt(3);
+            int insercao = unitarios ? 1 : 1 + aleatorio.nextInt(3);
+            int substituicao = unitarios ? 1 : 1 + aleatorio.nextInt(4);
+            int troca = unitarios ? 1 : Math.max((remocao + insercao + 1) / 2, 1 + aleatorio.nextInt(4));
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(30), 1 + aleatorio.nextInt(5));
+            String b = aleatorio.nextInt(4) == 0 ? a
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(30), 1 + aleatorio.nextInt(5));
+            DamerauLevenshtein distancia = new DamerauLevenshtein(remocao, insercao, substituicao, troca);
+            int n = a.length();
+            int m = b.length();
+            long maior = Math.min(n, m) * (long) Math.min(substituicao, remocao + insercao)
+                    + (n >= m ? (n - m) * remocao : (m - n) * insercao);
+            double normalizada = maior == 0 ? 0 : (double) distancia.calcularDistancia(a, b) / maior;
+            assertEquals(normalizada, distancia.calcularDistanciaNormalizada(a, b));
+            assertEquals(1 - normalizada, distancia.calcularSimilaridade(a, b));
+            double minimo = aleatorio.nextDouble();
+            assertEquals(1 - normalizada >= minimo ? 1 - normalizada : -1,
+                    distancia.calcularSimilaridade(a, b, minimo));
+            assertEquals(normalizada <= 1 - minimo ? normalizada : -1,
+                    distancia.calcularDistanciaNormalizada(a, b, 1 - minimo));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.bibiteix.damerau;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DistanciaBitParalelaTest {
+
+    /**
+     * Patterns from empty to a few words long, so that both the single-word
+     * kernel and the blocked one run, with the carry across word boundaries.
+     */
+    @Test
+    void concordaComAMatrizRestrita() {
+        Random aleatorio = new Random(5);
+        Workspace workspace = new Workspace();
+        for (int caso = 0; caso < 5000; caso++) {
+            int alfabeto = 1 + aleatorio.nextInt(8);
+            int tamanho = caso % 4 == 0 ? 300 : caso % 4 == 1 ? 130 : 70;
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto);
+            String b = aleatorio.nextBoolean()
+                    ? Referencias.alterada(aleatorio, a, aleatorio.nextInt(12), alfabeto)
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto);
+            int[] primeira = a.chars().toArray();
+            int[] segunda = b.chars().toArray();
+            assertEquals(Referencias.restrita(a, b), DistanciaBitParalela.calcularDistanciaRestrita(
+                    primeira, primeira.length, segunda, segunda.length, workspace),
+                    () -> a + " / " + b);
+        }
+    }
+
+    @Test
+    void padraoPreparadoServeParaVariosTextos() {
+        Random aleatorio = new Random(9);
+        Workspace workspace = new Workspace();
+        for (int caso = 0; caso < 300; caso++) {
+            int alfabeto = 2 + aleatorio.nextInt(6);
+            // 63, 64, 65 e 128, 129 caracteres caem nas bordas das palavras
+            int[] bordas = { 63, 64, 65, 128, 129 };
+            int tamanho = caso % 3 == 0 ? bordas[aleatorio.nextInt(bordas.length)] : aleatorio.nextInt(200);
+            String padrao = Referencias.aleatoria(aleatorio, tamanho, alfabeto);
+            int[] simbolos = padrao.chars().toArray();
+            int palavras = DistanciaBitParalela.prepararPadrao(simbolos, simbolos.length, workspace);
+            assertEquals((tamanho + 63) / 64, palavras);
+            for (int t = 0; t < 10; t++) {
+                String texto = Referencias.alterada(aleatorio, padrao, aleatorio.nextInt(6), alfabeto);
+                int[] simbolosDoTexto = texto.chars().toArray();
+                assertEquals(Referencias.restrita(padrao, texto), DistanciaBitParalela.calcularComPadrao(
+                        simbolos.length, palavras, simbolosDoTexto, simbolosDoTexto.length, workspace));
+            }
+        }
+    }
+
+    /**
+     * The two facts DL2 relies on: at most 2 the restricted distance is the
+     * unrestricted one, and above that the unrestricted one is at least
+     * ceil(2r / 3).
+     */
+    @Test
+    void restritaLimitaADistanciaSemRestricao() {
+        Random aleatorio = new Random(15);
+        for (int caso = 0; caso < 30000; caso++) {
+            int alfabeto = 1 + aleatorio.nextInt(5);
+            String a = Referencias.aleatoria(aleatorio, aleatorio.nextInt(12), alfabeto);
+            String b = caso % 2 == 0 ? Referencias.alterada(aleatorio, a, aleatorio.nextInt(5), alfabeto)
+                    : Referencias.aleatoria(aleatorio, aleatorio.nextInt(12), alfabeto);
+            int restrita = Referencias.restrita(a, b);
+            int semRestricao = Referencias.dl2(a, b);
+            assertTrue(semRestricao <= restrita);
+            if (restrita <= DistanciaBitParalela.MAIOR_DISTANCIA_EXATA) {
+                assertEquals(restrita, semRestricao, () -> a + " / " + b);
+            }
+            assertTrue(semRestricao >= DistanciaBitParalela.limiteInferior(restrita), () -> a + " / " + b);
+        }
+        // o limite é atingido: cada troca com um caracter inserido no meio custa 3 na restrita e 2 aqui
+        assertEquals(3, Referencias.restrita("ab", "bca"));
+        assertEquals(2, Referencias.dl2("ab", "bca"));
+        assertEquals(2, DistanciaBitParalela.limiteInferior(3));
+        assertEquals(6, Referencias.restrita("ab-cd", "bxa-dyc"));
+        assertEquals(4, Referencias.dl2("ab-cd", "bxa-dyc"));
+        assertEquals(4, DistanciaBitParalela.limiteInferior(6));
+    }
+
+    /**
+     * DL2 answers from the restricted distance alone when it is at most 2,
+     * gives up on it when ceil(2r / 3) exceeds the limit, and fills the band
+     * otherwise; every path must give the matrix's answer, also past 64
+     * characters and through the batch of candidates.
+     */
+    @Test
+    void dl2ConcordaComAMatrizEmTodosOsCaminhos() {
+        Random aleatorio = new Random(21);
+        DL2 distancia = new DL2();
+        Workspace workspace = new Workspace();
+        for (int caso = 0; caso < 2000; caso++) {
+            int alfabeto = 2 + aleatorio.nextInt(6);
+            int tamanho = caso % 3 == 0 ? 150 : 20;
+            String consulta = Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto);
+            List<String> candidatos = new ArrayList<String>();
+            for (int c = 0; c < 8; c++) {
+                candidatos.add(c % 2 == 0
+                        ? Referencias.alterada(aleatorio, consulta, aleatorio.nextInt(c + 1), alfabeto)
+                        : Referencias.aleatoria(aleatorio, aleatorio.nextInt(tamanho), alfabeto));
+            }
+            double[] resultado = new double[candidatos.size()];
+            distancia.calcularDistancias(consulta, candidatos, resultado, workspace);
+            for (int c = 0; c < candidatos.size(); c++) {
+                String candidato = candidatos.get(c);
+                int esperada = Referencias.dl2(consulta, candidato);
+                assertEquals(esperada, distancia.calcularDistancia(consulta, candidato, workspace));
+                assertEquals(esperada, resultado[c]);
+                int maxDistancia = Math.max(0, esperada - 1 + aleatorio.nextInt(3));
+                assertEquals(esperada <= maxDistancia ? esperada : -1,
+                        distancia.distancia(consulta, candidato, maxDistancia, workspace));
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package br.com.bibiteix.damerau;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Plain full-matrix versions of the distances, written as in the first
+ * version of the library, that the tests compare the kernels against, and
+ * helpers for random strings.
+ */
+final class Referencias {
+
+    private Referencias() {
+    }
+
+    /**
+     * The recurrence of Stern that DamerauLevenshtein computes, with its
+     * first row and column, on a matrix of n x m cells.
+     */
+    static int stern(String primeira, String segunda, int remocao, int insercao, int substituicao,
+            int troca) {
+        int n = primeira.length();
+        int m = segunda.length();
+        if (n == 0) {
+            return m * insercao;
+        }
+        if (m == 0) {
+            return n * remocao;
+        }
+        int[][] d = new int[n][m];
+        Map<Character, Integer> ultimaNaPrimeira = new HashMap<Character, Integer>();
+        if (primeira.charAt(0) != segunda.charAt(0)) {
+            d[0][0] = Math.min(substituicao, remocao + insercao);
+        }
+        ultimaNaPrimeira.put(primeira.charAt(0), 0);
+        for (int i = 1; i < n; i++) {
+            d[i][0] = Math.min(Math.min(d[i - 1][0] + remocao, (i + 1) * remocao + insercao),
+                    i * remocao + (primeira.charAt(i) == segunda.charAt(0) ? 0 : substituicao));
+        }
+        for (int j = 1; j < m; j++) {
+            d[0][j] = Math.min(Math.min((j + 1) * insercao + remocao, d[0][j - 1] + insercao),
+                    j * insercao + (primeira.charAt(0) == segunda.charAt(j) ? 0 : substituicao));
+        }
+        for (int i = 1; i < n; i++) {
+            int ultimaNaSegunda = primeira.charAt(i) == segunda.charAt(0) ? 0 : -1;
+            for (int j = 1; j < m; j++) {
+                Integer iTroca = ultimaNaPrimeira.get(segunda.charAt(j));
+                int jTroca = ultimaNaSegunda;
+                int valor = Math.min(d[i - 1][j] + remocao, d[i][j - 1] + insercao);
+                if (primeira.charAt(i) == segunda.charAt(j)) {
+                    valor = Math.min(valor, d[i - 1][j - 1]);
+                    ultimaNaSegunda = j;
+                } else {
+                    valor = Math.min(valor, d[i - 1][j - 1] + substituicao);
+                }
+                if (iTroca != null && jTroca != -1) {
+                    int antes = iTroca == 0 && jTroca == 0 ? 0
+                            : d[Math.max(0, iTroca - 1)][Math.max(0, jTroca - 1)];
+                    valor = Math.min(valor, antes + (i - iTroca - 1) * remocao
+                            + (j - jTroca - 1) * insercao + troca);
+                }
+                d[i][j] = valor;
+            }
+            ultimaNaPrimeira.put(primeira.charAt(i), i);
+        }
+        return d[n - 1][m - 1];
+    }
+
+    /**
+     * The Lowrance-Wagner distance, on a matrix of (n + 1) x (m + 1) cells,
+     * trying every earlier pair of cells for the swap term.
+     */
+    static int lowranceWagner(String primeira, String segunda, int remocao, int insercao,
+            int substituicao, int troca) {
+        int n = primeira.length();
+        int m = segunda.length();
+        int[][] d = new int[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) {
+            for (int j = 0; j <= m; j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i * remocao + j * insercao;
+                    continue;
+                }
+                int valor = Math.min(d[i - 1][j] + remocao, d[i][j - 1] + insercao);
+                valor = Math.min(valor, d[i - 1][j - 1]
+                        + (primeira.charAt(i - 1) == segunda.charAt(j - 1) ? 0 : substituicao));
+                for (int x = 0; x < i - 1; x++) {
+                    for (int y = 0; y < j - 1; y++) {
+                        if (primeira.charAt(x) == segunda.charAt(j - 1)
+                                && primeira.charAt(i - 1) == segunda.charAt(y)) {
+                            valor = Math.min(valor, d[x][y] + (i - x - 2) * remocao
+                                    + (j - y - 2) * insercao + troca);
+                        }
+                    }
+                }
+                d[i][j] = valor;
+            }
+        }
+        return d[n][m];
+    }
+
+    /**
+     * The restricted Damerau-Levenshtein (optimal string alignment) distance
+     * with unit costs, where only characters that stay adjacent are swapped.
+     */
+    static int restrita(String primeira, String segunda) {
+        int n = primeira.length();
+        int m = segunda.length();
+        int[][] d = new int[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) {
+            for (int j = 0; j <= m; j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                int valor = Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1);
+                valor = Math.min(valor, d[i - 1][j - 1]
+                        + (primeira.charAt(i - 1) == segunda.charAt(j - 1) ? 0 : 1));
+                if (i > 1 && j > 1 && primeira.charAt(i - 1) == segunda.charAt(j - 2)
+                        && primeira.charAt(i - 2) == segunda.charAt(j - 1)) {
+                    valor = Math.min(valor, d[i - 2][j - 2] + 1);
+                }
+                d[i][j] = valor;
+            }
+        }
+        return d[n][m];
+    }
+
+    /**
+     * The unrestricted Damerau-Levenshtein distance with unit costs, as DL2
+     * computes it.
+     */
+    static int dl2(String primeira, String segunda) {
+        int n = primeira.length();
+        int m = segunda.length();
+        int infinito = n + m;
+        int[][] h = new int[n + 2][m + 2];
+        for (int i = 0; i <= n; i++) {
+            h[i + 1][0] = infinito;
+            h[i + 1][1] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            h[0][j + 1] = infinito;
+            h[1][j + 1] = j;
+        }
+        Map<Character, Integer> ultimaNaPrimeira = new HashMap<Character, Integer>();
+        for (int i = 1; i <= n; i++) {
+            int ultimaNaSegunda = 0;
+            for (int j = 1; j <= m; j++) {
+                int i1 = ultimaNaPrimeira.getOrDefault(segunda.charAt(j - 1), 0);
+                int j1 = ultimaNaSegunda;
+                int custo = 1;
+                if (primeira.charAt(i - 1) == segunda.charAt(j - 1)) {
+                    custo = 0;
+                    ultimaNaSegunda = j;
+                }
+                h[i + 1][j + 1] = Math.min(Math.min(h[i][j] + custo, h[i + 1][j] + 1),
+                        Math.min(h[i][j + 1] + 1, h[i1][j1] + (i - i1 - 1) + 1 + (j - j1 - 1)));
+            }
+            ultimaNaPrimeira.put(primeira.charAt(i - 1), i);
+        }
+        return h[n + 1][m + 1];
+    }
+
+    /**
+     * A string of the given length over the first letters of the alphabet.
+     */
+    static String aleatoria(Random aleatorio, int tamanho, int alfabeto) {
+        StringBuilder texto = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            texto.append((char) ('a' + aleatorio.nextInt(alfabeto)));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * The string with up to the given number of random removals, insertions,
+     * substitutions and adjacent swaps.
+     */
+    static String alterada(Random aleatorio, String original, int alteracoes, int alfabeto) {
+        StringBuilder texto = new StringBuilder(original);
+        for (int k = 0; k < alteracoes; k++) {
+            int p = texto.length() == 0 ? 0 : aleatorio.nextInt(texto.length());
+            char novo = (char) ('a' + aleatorio.nextInt(alfabeto));
+            switch (aleatorio.nextInt(4)) {
+            case 0:
+                texto.insert(p, novo);
+                break;
+            case 1:
+                if (texto.length() > 0) {
+                    texto.deleteCharAt(p);
+                }
+                break;
+            case 2:
+                if (texto.length() > 0) {
+                    texto.setCharAt(p, novo);
+                }
+                break;
+            default:
+                if (p + 1 < texto.length()) {
+                    char c = texto.charAt(p);
+                    texto.setCharAt(p, texto.charAt(p + 1));
+                    texto.setCharAt(p + 1, c);
+                }
+            }
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.bibiteix.damerau;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+    @Test
+    void concordaComAOrdenacaoDeTodosOsCandidatos() {
+        Random aleatorio = new Random(5);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int caso = 0; caso < 150; caso++) {
+                int n = aleatorio.nextInt(2000);
+                String[] candidatos = new String[n];
+                for (int i = 0; i < n; i++) {
+                    candidatos[i] = Referencias.aleatoria(aleatorio, aleatorio.nextInt(12), 3);
+                }
+                String consulta = Referencias.aleatoria(aleatorio, aleatorio.nextInt(12), 3);
+                int k = 1 + aleatorio.nextInt(20);
+                CalculadoraDeDistancia calculadora = caso % 3 == 0 ? new DL2()
+                        : caso % 3 == 1 ? new DamerauLevenshtein(1, 1, 1, 1)
+                                : new DamerauLevenshtein(2, 3, 2, 3);
+
+                // distância na metade alta e índice na baixa, como no heap
+                long[] ordem = new long[n];
+                Workspace workspace = Workspace.daThreadAtual();
+                for (int i = 0; i < n; i++) {
+                    ordem[i] = (long) calculadora.distancia(consulta, candidatos[i], workspace) << 32 | i;
+                }
+                Arrays.sort(ordem);
+
+                TopK sequencial = TopK.calcular(consulta, candidatos, k, calculadora);
+                TopK paralelo = TopK.calcularEmParalelo(consulta, candidatos, k, calculadora, pool);
+                int esperados = Math.min(k, n);
+                assertEquals(esperados, sequencial.tamanho());
+                assertEquals(esperados, paralelo.tamanho());
+                for (int r = 0; r < esperados; r++) {
+                    assertEquals((int) ordem[r], sequencial.indice(r));
+                    assertEquals((int) (ordem[r] >>> 32), sequencial.distancia(r));
+                    assertEquals((int) ordem[r], paralelo.indice(r));
+                    assertEquals((int) (ordem[r] >>> 32), paralelo.distancia(r));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * Burkhard-Keller tree over the {@link DL2} distance, for fuzzy lookups in a
+ * dictionary.
+ * <p>
+ * Every child of a node sits at a known distance from it, so, by the triangle
+ * inequality, a search for the terms within {@code maxDistancia} of a query
+ * at distance d from the node only has to descend into the children whose
+ * distance lies in {@code [d - maxDistancia, d + maxDistancia]}. The distance
+ * to a node is computed with a limit of its farthest child plus the search
+ * radius, beyond which neither the node nor any child can match.
+ * <p>
+ * The tree is built in bulk and then laid out in breadth-first order in a few
+ * primitive arrays: the children of a node are contiguous and sorted by
+ * distance, so a node costs no object of its own and a search reads each
+ * group of siblings sequentially. The tree is immutable and can be searched
+ * from several threads at once.
+ */
+public final class BKTree {
+
+    private static final DL2 DISTANCIA = new DL2();
+
+    private final String[] termos;
+    private final int[] distanciaAoPai;
+    // os filhos do nó i são os nós de inicioDosFilhos[i] até inicioDosFilhos[i + 1] - 1
+    private final int[] inicioDosFilhos;
+
+    private BKTree(String[] termos, int[] distanciaAoPai, int[] inicioDosFilhos) {
+        this.termos = termos;
+        this.distanciaAoPai = distanciaAoPai;
+        this.inicioDosFilhos = inicioDosFilhos;
+    }
+
+    /**
+     * Build a tree holding the given terms. Repeated terms are kept once.
+     */
+    public static BKTree construir(Iterable<String> termos) {
+        Workspace workspace = Workspace.daThreadAtual();
+        // durante a construção os irmãos formam listas ligadas, ordenadas pela distância ao pai
+        String[] termosInseridos = new String[16];
+        int[] distancias = new int[16];
+        int[] primeiroFilho = new int[16];
+        int[] proximoIrmao = new int[16];
+        int quantidade = 0;
+        for (String termo : termos) {
+            if (quantidade == termosInseridos.length) {
+                int capacidade = 2 * quantidade;
+                termosInseridos = Arrays.copyOf(termosInseridos, capacidade);
+                distancias = Arrays.copyOf(distancias, capacidade);
+                primeiroFilho = Arrays.copyOf(primeiroFilho, capacidade);
+                proximoIrmao = Arrays.copyOf(proximoIrmao, capacidade);
+            }
+            int novo = quantidade;
+            termosInseridos[novo] = termo;
+            primeiroFilho[novo] = -1;
+            proximoIrmao[novo] = -1;
+            if (quantidade == 0) {
+                quantidade++;
+                continue;
+            }
+            int palavras = DISTANCIA.prepararConsulta(termo, workspace);
+            int no = 0;
+            while (true) {
+                int distancia = DISTANCIA.calcularAPartirDaConsulta(palavras, termosInseridos[no],
+                        Integer.MAX_VALUE, workspace);
+                if (distancia == 0) {
+                    break;
+                }
+                int anterior = -1;
+                int filho = primeiroFilho[no];
+                while (filho != -1 && distancias[filho] < distancia) {
+                    anterior = filho;
+                    filho = proximoIrmao[filho];
+                }
+                if (filho != -1 && distancias[filho] == distancia) {
+                    no = filho;
+                    continue;
+                }
+                distancias[novo] = distancia;
+                proximoIrmao[novo] = filho;
+                if (anterior == -1) {
+                    primeiroFilho[no] = novo;
+                } else {
+                    proximoIrmao[anterior] = novo;
+                }
+                quantidade++;
+                break;
+            }
+        }
+
+        // reorganiza em largura: os filhos de cada nó ficam contíguos
+        int[] ordem = new int[quantidade];
+        int[] inicioDosFilhos = new int[quantidade + 1];
+        int fimDaFila = quantidade == 0 ? 0 : 1;
+        for (int k = 0; k < quantidade; k++) {
+            inicioDosFilhos[k] = fimDaFila;
+            for (int filho = primeiroFilho[ordem[k]]; filho != -1; filho = proximoIrmao[filho]) {
+                ordem[fimDaFila++] = filho;
+            }
+        }
+        inicioDosFilhos[quantidade] = fimDaFila;
+        String[] termosEmLargura = new String[quantidade];
+        int[] distanciasEmLargura = new int[quantidade];
+        for (int k = 0; k < quantidade; k++) {
+            termosEmLargura[k] = termosInseridos[ordem[k]];
+            distanciasEmLargura[k] = distancias[ordem[k]];
+        }
+        return new BKTree(termosEmLargura, distanciasEmLargura, inicioDosFilhos);
+    }
+
+    /**
+     * The number of distinct terms in the tree.
+     */
+    public int tamanho() {
+        return termos.length;
+    }
+
+    /**
+     * Every term within {@code maxDistancia} of the query, closest first.
+     */
+    public List<Correspondencia> buscar(String consulta, int maxDistancia) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        if (termos.length == 0) {
+            return resultado;
+        }
+        Workspace workspace = Workspace.daThreadAtual();
+        int palavras = DISTANCIA.prepararConsulta(consulta, workspace);
+        int[] pilha = new int[16];
+        int topo = 0;
+        pilha[topo++] = 0;
+        while (topo > 0) {
+            int no = pilha[--topo];
+            int distancia = distanciaAoNo(no, palavras, maxDistancia, workspace);
+            if (distancia < 0) {
+                continue;
+            }
+            if (distancia <= maxDistancia) {
+                resultado.add(new Correspondencia(termos[no], distancia));
+            }
+            for (int filho = inicioDosFilhos[no]; filho < inicioDosFilhos[no + 1]; filho++) {
+                if (distanciaAoPai[filho] < distancia - maxDistancia) {
+                    continue;
+                }
+                if (distanciaAoPai[filho] > distancia + maxDistancia) {
+                    break;
+                }
+                if (topo == pilha.length) {
+                    pilha = Arrays.copyOf(pilha, 2 * topo);
+                }
+                pilha[topo++] = filho;
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * The {@code quantidade} terms closest to the query, closest first. Ties at
+     * the largest distance are broken by the natural order of the terms.
+     */
+    public List<Correspondencia> maisProximos(String consulta, int quantidade) {
+        if (quantidade < 0) {
+            throw new IllegalArgumentException("quantidade must not be negative");
+        }
+        if (quantidade == 0 || termos.length == 0) {
+            return new ArrayList<Correspondencia>();
+        }
+        Workspace workspace = Workspace.daThreadAtual();
+        int palavras = DISTANCIA.prepararConsulta(consulta, workspace);
+        // a pior correspondência mantida fica no topo
+        PriorityQueue<Correspondencia> melhores = new PriorityQueue<Correspondencia>(quantidade + 1,
+                Collections.<Correspondencia>reverseOrder());
+        int[] pilha = new int[16];
+        int topo = 0;
+        pilha[topo++] = 0;
+        while (topo > 0) {
+            int no = pilha[--topo];
+            int raio = melhores.size() < quantidade ? Integer.MAX_VALUE : melhores.peek().getDistancia();
+            int distancia = distanciaAoNo(no, palavras, raio, workspace);
+            if (distancia < 0) {
+                continue;
+            }
+            if (distancia <= raio) {
+                melhores.add(new Correspondencia(termos[no], distancia));
+                if (melhores.size() > quantidade) {
+                    melhores.poll();
+                }
+                raio = melhores.size() < quantidade ? Integer.MAX_VALUE : melhores.peek().getDistancia();
+            }
+            for (int filho = inicioDosFilhos[no]; filho < inicioDosFilhos[no + 1]; filho++) {
+                if ((long) distanciaAoPai[filho] < (long) distancia - raio) {
+                    continue;
+                }
+                if ((long) distanciaAoPai[filho] > (long) distancia + raio) {
+                    break;
+                }
+                if (topo == pilha.length) {
+                    pilha = Arrays.copyOf(pilha, 2 * topo);
+                }
+                pilha[topo++] = filho;
+            }
+        }
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>(melhores);
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * Distance from the prepared query to a node, or -1 when it exceeds the
+     * radius by more than the distance to the farthest child, in which case
+     * neither the node nor any of its children can match.
+     */
+    private int distanciaAoNo(int no, int palavras, int raio, Workspace workspace) {
+        int ultimoFilho = inicioDosFilhos[no + 1] - 1;
+        int maiorDistanciaDosFilhos = ultimoFilho >= inicioDosFilhos[no] ? distanciaAoPai[ultimoFilho] : 0;
+        int limite = (int) Math.min(Integer.MAX_VALUE, (long) maiorDistanciaDosFilhos + raio);
+        return DISTANCIA.calcularAPartirDaConsulta(palavras, termos[no], limite, workspace);
+    }
+}
@@ -0,0 +1,16 @@
+package br.com.bibiteix.damerau.index;
+
+/**
+ * Receives the pairs of a similarity join as they are found, so they never
+ * have to be held in memory all at once.
+ * <p>
+ * Joins that run in parallel call it from several threads at once.
+ */
+public interface ConsumidorDePares {
+
+    /**
+     * A pair of records, by their index, with {@code primeiro < segundo}, and
+     * the distance from the first one to the second one.
+     */
+    void aceitar(int primeiro, int segundo, int distancia);
+}
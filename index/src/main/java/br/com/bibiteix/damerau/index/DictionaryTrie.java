@@ -0,0 +1,348 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+
+/**
+ * Dictionary trie searched with the {@link DamerauLevenshtein} recurrence, so
+ * that words sharing a prefix share the work done for it.
+ * <p>
+ * The query indexes the rows of the matrix and the trie path the columns: a
+ * depth-first walk extends the matrix by one column per edge, exactly as
+ * {@link DamerauLevenshtein#calcularDistancia(String, String)} would for the
+ * word spelled by the path, and every word is reported with its distance from
+ * the query. The swap term may reach back to any earlier column of the path,
+ * so the columns of the whole path are kept, one per depth. A subtree is
+ * abandoned at the first column whose cells all exceed the limit by more than
+ * the slack of the swap term, the same rule the bounded distance applies to
+ * rows.
+ * <p>
+ * Nodes live in primitive arrays, laid out breadth-first with the children of
+ * a node contiguous and sorted by character. The trie is immutable and can be
+ * searched from several threads at once.
+ * <p>
+ * Each edge is one UTF-16 char or one code point, as chosen when the trie is
+ * built, and only calculators counting the same unit can search it; grapheme
+ * clusters are not supported.
+ */
+public final class DictionaryTrie {
+
+    private final Unidade unidade;
+    private final String[] termos;
+    private final int[] caracterDoNo;
+    // -1 quando nenhum termo termina no nó
+    private final int[] termoDoNo;
+    // os filhos do nó i são os nós de inicioDosFilhos[i] até inicioDosFilhos[i + 1] - 1
+    private final int[] inicioDosFilhos;
+
+    private DictionaryTrie(Unidade unidade, String[] termos, int[] caracterDoNo, int[] termoDoNo,
+            int[] inicioDosFilhos) {
+        this.unidade = unidade;
+        this.termos = termos;
+        this.caracterDoNo = caracterDoNo;
+        this.termoDoNo = termoDoNo;
+        this.inicioDosFilhos = inicioDosFilhos;
+    }
+
+    /**
+     * Build a trie of UTF-16 chars holding the given terms. Repeated terms
+     * are kept once.
+     */
+    public static DictionaryTrie construir(Iterable<String> termos) {
+        return construir(termos, Unidade.UTF16);
+    }
+
+    /**
+     * Build a trie holding the given terms, one edge per UTF-16 char or per
+     * code point. Repeated terms are kept once.
+     */
+    public static DictionaryTrie construir(Iterable<String> termos, Unidade unidade) {
+        if (unidade == Unidade.GRAFEMA) {
+            throw new IllegalArgumentException("grapheme clusters are not supported");
+        }
+        // durante a construção os irmãos formam listas ligadas, ordenadas pelo caracter
+        int[] caracteres = new int[16];
+        int[] termoDoNo = new int[16];
+        int[] primeiroFilho = new int[16];
+        int[] proximoIrmao = new int[16];
+        termoDoNo[0] = -1;
+        primeiroFilho[0] = -1;
+        proximoIrmao[0] = -1;
+        int quantidade = 1;
+        List<String> distintos = new ArrayList<String>();
+        for (String termo : termos) {
+            int no = 0;
+            for (int p = 0; p < termo.length(); ) {
+                int caracter = unidade == Unidade.UTF16 ? termo.charAt(p) : termo.codePointAt(p);
+                p += unidade == Unidade.UTF16 ? 1 : Character.charCount(caracter);
+                int anterior = -1;
+                int filho = primeiroFilho[no];
+                while (filho != -1 && caracteres[filho] < caracter) {
+                    anterior = filho;
+                    filho = proximoIrmao[filho];
+                }
+                if (filho != -1 && caracteres[filho] == caracter) {
+                    no = filho;
+                    continue;
+                }
+                if (quantidade == caracteres.length) {
+                    int capacidade = 2 * quantidade;
+                    caracteres = Arrays.copyOf(caracteres, capacidade);
+                    termoDoNo = Arrays.copyOf(termoDoNo, capacidade);
+                    primeiroFilho = Arrays.copyOf(primeiroFilho, capacidade);
+                    proximoIrmao = Arrays.copyOf(proximoIrmao, capacidade);
+                }
+                int novo = quantidade++;
+                caracteres[novo] = caracter;
+                termoDoNo[novo] = -1;
+                primeiroFilho[novo] = -1;
+                proximoIrmao[novo] = filho;
+                if (anterior == -1) {
+                    primeiroFilho[no] = novo;
+                } else {
+                    proximoIrmao[anterior] = novo;
+                }
+                no = novo;
+            }
+            if (termoDoNo[no] == -1) {
+                termoDoNo[no] = distintos.size();
+                distintos.add(termo);
+            }
+        }
+
+        // reorganiza em largura: os filhos de cada nó ficam contíguos
+        int[] ordem = new int[quantidade];
+        int[] inicioDosFilhos = new int[quantidade + 1];
+        int fimDaFila = 1;
+        for (int k = 0; k < quantidade; k++) {
+            inicioDosFilhos[k] = fimDaFila;
+            for (int filho = primeiroFilho[ordem[k]]; filho != -1; filho = proximoIrmao[filho]) {
+                ordem[fimDaFila++] = filho;
+            }
+        }
+        inicioDosFilhos[quantidade] = fimDaFila;
+        int[] caracteresEmLargura = new int[quantidade];
+        int[] termosEmLargura = new int[quantidade];
+        for (int k = 0; k < quantidade; k++) {
+            caracteresEmLargura[k] = caracteres[ordem[k]];
+            termosEmLargura[k] = termoDoNo[ordem[k]];
+        }
+        return new DictionaryTrie(unidade, distintos.toArray(new String[distintos.size()]),
+                caracteresEmLargura, termosEmLargura, inicioDosFilhos);
+    }
+
+    /**
+     * The number of distinct terms in the trie.
+     */
+    public int tamanho() {
+        return termos.length;
+    }
+
+    /**
+     * What counts as one edge of the trie.
+     */
+    public Unidade unidade() {
+        return unidade;
+    }
+
+    /**
+     * Every term whose distance from the query is at most
+     * {@code maxDistancia}, closest first. The calculator must count the
+     * unit the trie was built with.
+     */
+    public List<Correspondencia> buscar(String consulta, int maxDistancia,
+            DamerauLevenshtein distancia) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        if (distancia.unidade() != unidade) {
+            throw new IllegalArgumentException("the trie was built for " + unidade
+                    + ", the calculator counts " + distancia.unidade());
+        }
+        int custoRemocao = distancia.custoRemocao();
+        int custoInsercao = distancia.custoInsercao();
+        int custoSubstituicao = distancia.custoSubstituicao();
+        int custoTroca = distancia.custoTroca();
+        // mesma folga que a distância limitada usa para abandonar uma linha
+        int folgaDaTroca = Math.max(0, Math.max(custoRemocao, custoInsercao) - custoTroca);
+        long limite = (long) maxDistancia + folgaDaTroca
+                + Math.max(0, custoRemocao + custoInsercao - custoTroca);
+
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        // copiada uma vez: cada coluna relê a consulta inteira
+        int[] caracteresDaConsulta = unidade == Unidade.UTF16 ? consulta.chars().toArray()
+                : consulta.codePoints().toArray();
+        int tamanhoConsulta = caracteresDaConsulta.length;
+        if (termoDoNo[0] != -1 && (long) tamanhoConsulta * custoRemocao <= maxDistancia) {
+            resultado.add(new Correspondencia(termos[termoDoNo[0]], tamanhoConsulta * custoRemocao));
+        }
+
+        // colunas[j] é a coluna do caracter de profundidade j + 1 do caminho atual;
+        // ultimaColuna[j][i] é a última coluna antes de j cujo caracter é consulta[i]
+        int[][] colunas = new int[16][tamanhoConsulta];
+        int[][] ultimaColuna = new int[17][tamanhoConsulta];
+        Arrays.fill(ultimaColuna[0], -1);
+        int[] pilha = new int[Math.max(16, inicioDosFilhos[1] - inicioDosFilhos[0])];
+        int[] profundidades = new int[pilha.length];
+        int topo = 0;
+        for (int filho = inicioDosFilhos[0]; filho < inicioDosFilhos[1]; filho++) {
+            pilha[topo] = filho;
+            profundidades[topo++] = 0;
+        }
+        while (topo > 0) {
+            int no = pilha[--topo];
+            int j = profundidades[topo];
+            int caracter = caracterDoNo[no];
+            if (j + 1 >= colunas.length) {
+                colunas = Arrays.copyOf(colunas, 2 * colunas.length);
+                ultimaColuna = Arrays.copyOf(ultimaColuna, 2 * ultimaColuna.length);
+            }
+            if (colunas[j] == null) {
+                colunas[j] = new int[tamanhoConsulta];
+            }
+            if (ultimaColuna[j + 1] == null) {
+                ultimaColuna[j + 1] = new int[tamanhoConsulta];
+            }
+            int[] coluna = colunas[j];
+            int minimo = (j + 1) * custoInsercao;
+            if (tamanhoConsulta > 0) {
+                calcularColuna(caracteresDaConsulta, caracter, j, colunas, ultimaColuna[j], custoRemocao,
+                        custoInsercao, custoSubstituicao, custoTroca);
+                int[] proximaUltimaColuna = ultimaColuna[j + 1];
+                for (int i = 0; i < tamanhoConsulta; i++) {
+                    minimo = Math.min(minimo, coluna[i]);
+                    proximaUltimaColuna[i] = caracteresDaConsulta[i] == caracter ? j : ultimaColuna[j][i];
+                }
+            }
+            int termo = termoDoNo[no];
+            if (termo != -1) {
+                int distanciaDoTermo = tamanhoConsulta == 0 ? (j + 1) * custoInsercao
+                        : coluna[tamanhoConsulta - 1];
+                if (distanciaDoTermo <= maxDistancia) {
+                    resultado.add(new Correspondencia(termos[termo], distanciaDoTermo));
+                }
+            }
+            if (minimo > limite) {
+                continue;
+            }
+            int inicio = inicioDosFilhos[no];
+            int fim = inicioDosFilhos[no + 1];
+            if (topo + fim - inicio > pilha.length) {
+                pilha = Arrays.copyOf(pilha, Math.max(2 * pilha.length, topo + fim - inicio));
+                profundidades = Arrays.copyOf(profundidades, pilha.length);
+            }
+            for (int filho = inicio; filho < fim; filho++) {
+                pilha[topo] = filho;
+                profundidades[topo++] = j + 1;
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * Every term accepted by the automaton, closest first. Each trie edge
+     * costs one transition, or two for a code point outside the BMP, whose
+     * surrogates the automaton reads one at a time, and a subtree is
+     * abandoned as soon as the automaton reaches its dead state.
+     */
+    public List<Correspondencia> buscar(LevenshteinAutomaton automato) {
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        int[] pilha = new int[16];
+        int[] estados = new int[16];
+        int topo = 0;
+        pilha[topo] = 0;
+        estados[topo++] = automato.estadoInicial();
+        while (topo > 0) {
+            int no = pilha[--topo];
+            int estado = estados[topo];
+            if (no != 0) {
+                int caracter = caracterDoNo[no];
+                if (Character.isSupplementaryCodePoint(caracter)) {
+                    estado = automato.transitar(estado, Character.highSurrogate(caracter));
+                    if (estado != LevenshteinAutomaton.ESTADO_MORTO) {
+                        estado = automato.transitar(estado, Character.lowSurrogate(caracter));
+                    }
+                } else {
+                    estado = automato.transitar(estado, (char) caracter);
+                }
+                if (estado == LevenshteinAutomaton.ESTADO_MORTO) {
+                    continue;
+                }
+            }
+            if (termoDoNo[no] != -1 && automato.distancia(estado) >= 0) {
+                resultado.add(new Correspondencia(termos[termoDoNo[no]], automato.distancia(estado)));
+            }
+            int inicio = inicioDosFilhos[no];
+            int fim = inicioDosFilhos[no + 1];
+            if (topo + fim - inicio > pilha.length) {
+                pilha = Arrays.copyOf(pilha, Math.max(2 * pilha.length, topo + fim - inicio));
+                estados = Arrays.copyOf(estados, pilha.length);
+            }
+            for (int filho = inicio; filho < fim; filho++) {
+                pilha[topo] = filho;
+                estados[topo++] = estado;
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * Fill {@code colunas[j]}, the column of the path character
+     * {@code caracter}, from the columns before it.
+     */
+    private static void calcularColuna(int[] consulta, int caracter, int j, int[][] colunas,
+            int[] ultimaColuna, int custoRemocao, int custoInsercao, int custoSubstituicao,
+            int custoTroca) {
+        int[] coluna = colunas[j];
+        int tamanhoConsulta = consulta.length;
+        if (j == 0) {
+            coluna[0] = consulta[0] == caracter ? 0
+                    : Math.min(custoSubstituicao, custoRemocao + custoInsercao);
+            for (int i = 1; i < tamanhoConsulta; i++) {
+                int distanciaRemocao = coluna[i - 1] + custoRemocao;
+                int distanciaInsercao = (i + 1) * custoRemocao + custoInsercao;
+                int distanciaSubstituicao = i * custoRemocao
+                        + (consulta[i] == caracter ? 0 : custoSubstituicao);
+                coluna[i] = Math.min(Math.min(distanciaRemocao, distanciaInsercao), distanciaSubstituicao);
+            }
+            return;
+        }
+        int[] anterior = colunas[j - 1];
+        coluna[0] = Math.min(Math.min((j + 1) * custoInsercao + custoRemocao, anterior[0] + custoInsercao),
+                j * custoInsercao + (consulta[0] == caracter ? 0 : custoSubstituicao));
+        // última linha antes de i cujo caracter é o da coluna
+        int iTroca = consulta[0] == caracter ? 0 : -1;
+        for (int i = 1; i < tamanhoConsulta; i++) {
+            int distanciaRemocao = coluna[i - 1] + custoRemocao;
+            int distanciaInsercao = anterior[i] + custoInsercao;
+            int distanciaSubstituicao = anterior[i - 1];
+            if (consulta[i] != caracter) {
+                distanciaSubstituicao += custoSubstituicao;
+            }
+            int distancia = Math.min(Math.min(distanciaRemocao, distanciaInsercao), distanciaSubstituicao);
+            int jTroca = ultimaColuna[i];
+            if (iTroca != -1 && jTroca != -1) {
+                int custoAntesDaTroca;
+                if (iTroca == 0 && jTroca == 0) {
+                    custoAntesDaTroca = 0;
+                } else {
+                    custoAntesDaTroca = colunas[Math.max(0, jTroca - 1)][Math.max(0, iTroca - 1)];
+                }
+                distancia = Math.min(distancia, custoAntesDaTroca + (i - iTroca - 1) * custoRemocao
+                        + (j - jTroca - 1) * custoInsercao + custoTroca);
+            }
+            coluna[i] = distancia;
+            if (consulta[i] == caracter) {
+                iTroca = i;
+            }
+        }
+    }
+}
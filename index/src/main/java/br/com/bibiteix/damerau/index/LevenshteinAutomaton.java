@@ -0,0 +1,321 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+
+/**
+ * Deterministic automaton accepting the words within a given {@link DL2}
+ * distance of a query, built lazily as words are fed to it.
+ * <p>
+ * The universal automata of Schulz and Mihov encode the restricted distance,
+ * where a swapped pair cannot be edited again. {@link DL2} and a unit-cost
+ * {@link DamerauLevenshtein} compute the unrestricted distance instead, in
+ * which a swap reaches back to the last occurrence of a character however far
+ * it is, so the automaton is specific to the query: a state holds the last
+ * {@code k + 2} columns of the Lowrance-Wagner recurrence, with every value
+ * capped at {@code k + 1}, and the last {@code k + 1} characters read, as
+ * classes of the query alphabet. A swap from further back costs more than k,
+ * so nothing else can influence which words are accepted. States are
+ * interned as they are reached and every transition is computed once; after
+ * that, reading a character costs one array lookup, whatever the length of
+ * the query.
+ * <p>
+ * An automaton grows as it is used and must not be shared between threads.
+ */
+public final class LevenshteinAutomaton {
+
+    /**
+     * State from which no word is accepted.
+     */
+    public static final int ESTADO_MORTO = 0;
+
+    private static final int DESCONHECIDA = -1;
+
+    private final String consulta;
+    private final int maxDistancia;
+    private final int linhas;
+    private final int colunasGuardadas;
+    // classe de cada caracter da consulta, a partir de 1; 0 é qualquer outro caracter
+    private final int[] classesLatin1 = new int[256];
+    // os demais caracteres da consulta, ordenados, e suas classes
+    private final char[] outrosCaracteres;
+    private final int[] classesDosOutros;
+    private final int[] classeDaLinha;
+    private final int quantidadeDeClasses;
+
+    private final List<int[]> estados = new ArrayList<int[]>();
+    private final Map<Estado, Integer> idDoEstado = new HashMap<Estado, Integer>();
+    private int[] transicoes;
+    private int[] distanciaDoEstado;
+    private final int estadoInicial;
+
+    /**
+     * @param consulta
+     *          the query.
+     * @param maxDistancia
+     *          the largest distance of the accepted words.
+     */
+    public LevenshteinAutomaton(String consulta, int maxDistancia) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        this.consulta = consulta;
+        this.maxDistancia = maxDistancia;
+        this.linhas = consulta.length() + 1;
+        this.colunasGuardadas = maxDistancia + 2;
+        this.classeDaLinha = new int[linhas];
+        int proximaClasse = 1;
+        Map<Character, Integer> outrasClasses = new HashMap<Character, Integer>();
+        for (int i = 1; i < linhas; i++) {
+            char caracter = consulta.charAt(i - 1);
+            int classe;
+            if (caracter < classesLatin1.length) {
+                classe = classesLatin1[caracter];
+                if (classe == 0) {
+                    classe = proximaClasse++;
+                    classesLatin1[caracter] = classe;
+                }
+            } else {
+                Integer existente = outrasClasses.get(caracter);
+                classe = existente != null ? existente : proximaClasse++;
+                outrasClasses.put(caracter, classe);
+            }
+            classeDaLinha[i] = classe;
+        }
+        this.quantidadeDeClasses = proximaClasse;
+        this.outrosCaracteres = new char[outrasClasses.size()];
+        this.classesDosOutros = new int[outrasClasses.size()];
+        int posicao = 0;
+        for (Character caracter : outrasClasses.keySet()) {
+            outrosCaracteres[posicao++] = caracter;
+        }
+        Arrays.sort(outrosCaracteres);
+        for (int k = 0; k < outrosCaracteres.length; k++) {
+            classesDosOutros[k] = outrasClasses.get(outrosCaracteres[k]);
+        }
+        this.transicoes = new int[16 * quantidadeDeClasses];
+        this.distanciaDoEstado = new int[16];
+
+        // o estado morto não guarda nada; o inicial tem só a coluna 0, sem caracteres lidos
+        estados.add(null);
+        distanciaDoEstado[ESTADO_MORTO] = -1;
+        Arrays.fill(transicoes, 0, quantidadeDeClasses, ESTADO_MORTO);
+        int[] inicial = new int[colunasGuardadas * linhas + colunasGuardadas - 1];
+        Arrays.fill(inicial, maxDistancia + 1);
+        int ultima = (colunasGuardadas - 1) * linhas;
+        for (int i = 0; i < linhas; i++) {
+            inicial[ultima + i] = Math.min(i, maxDistancia + 1);
+        }
+        Arrays.fill(inicial, colunasGuardadas * linhas, inicial.length, -1);
+        this.estadoInicial = internar(inicial);
+    }
+
+    public String getConsulta() {
+        return consulta;
+    }
+
+    public int getMaxDistancia() {
+        return maxDistancia;
+    }
+
+    /**
+     * The state before any character is read.
+     */
+    public int estadoInicial() {
+        return estadoInicial;
+    }
+
+    /**
+     * The state reached by reading a character from the given state.
+     */
+    public int transitar(int estado, char caracter) {
+        if (estado == ESTADO_MORTO) {
+            return ESTADO_MORTO;
+        }
+        int classe = classe(caracter);
+        int posicao = estado * quantidadeDeClasses + classe;
+        int destino = transicoes[posicao];
+        if (destino == DESCONHECIDA) {
+            destino = calcularTransicao(estados.get(estado), classe);
+            transicoes[estado * quantidadeDeClasses + classe] = destino;
+        }
+        return destino;
+    }
+
+    /**
+     * The distance from the query to the word read up to the given state, or
+     * -1 if it is greater than {@code maxDistancia}.
+     */
+    public int distancia(int estado) {
+        return distanciaDoEstado[estado];
+    }
+
+    /**
+     * The distance from the query to the given word, or -1 if it is greater
+     * than {@code maxDistancia}.
+     */
+    public int distancia(String palavra) {
+        int estado = estadoInicial;
+        for (int j = 0; j < palavra.length() && estado != ESTADO_MORTO; j++) {
+            estado = transitar(estado, palavra.charAt(j));
+        }
+        return distanciaDoEstado[estado];
+    }
+
+    /**
+     * Every word of the dictionary accepted by the automaton, closest first.
+     * The state reached for each prefix is reused by the following word when
+     * they share it, so a sorted dictionary reads every common prefix once,
+     * and the words after a dead prefix are skipped without being read.
+     */
+    public List<Correspondencia> buscar(List<String> dicionario) {
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        // estadosDoPrefixo[p] é o estado depois de ler os p primeiros caracteres de anterior
+        int[] estadosDoPrefixo = new int[17];
+        estadosDoPrefixo[0] = estadoInicial;
+        String anterior = "";
+        int lidos = 0;
+        for (String palavra : dicionario) {
+            int comum = 0;
+            int limite = Math.min(lidos, palavra.length());
+            while (comum < limite && palavra.charAt(comum) == anterior.charAt(comum)) {
+                comum++;
+            }
+            if (estadosDoPrefixo[comum] == ESTADO_MORTO) {
+                continue;
+            }
+            if (estadosDoPrefixo.length <= palavra.length()) {
+                estadosDoPrefixo = Arrays.copyOf(estadosDoPrefixo,
+                        Math.max(2 * estadosDoPrefixo.length, palavra.length() + 1));
+            }
+            int estado = estadosDoPrefixo[comum];
+            int p = comum;
+            while (p < palavra.length() && estado != ESTADO_MORTO) {
+                estado = transitar(estado, palavra.charAt(p++));
+                estadosDoPrefixo[p] = estado;
+            }
+            anterior = palavra;
+            lidos = p;
+            if (p == palavra.length() && distanciaDoEstado[estado] >= 0) {
+                resultado.add(new Correspondencia(palavra, distanciaDoEstado[estado]));
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * The number of states reached so far, the dead state included.
+     */
+    public int quantidadeDeEstados() {
+        return estados.size();
+    }
+
+    private int classe(char caracter) {
+        if (caracter < classesLatin1.length) {
+            return classesLatin1[caracter];
+        }
+        int posicao = Arrays.binarySearch(outrosCaracteres, caracter);
+        return posicao >= 0 ? classesDosOutros[posicao] : 0;
+    }
+
+    /**
+     * A state is laid out as its columns, oldest first, each with one value
+     * per prefix of the query, followed by the classes of the characters
+     * read, oldest first, with -1 before the start of the word.
+     */
+    private int calcularTransicao(int[] estado, int classe) {
+        int infinito = maxDistancia + 1;
+        int[] novo = new int[estado.length];
+        // desloca as colunas e os caracteres guardados
+        System.arraycopy(estado, linhas, novo, 0, (colunasGuardadas - 1) * linhas);
+        int inicioDosCaracteres = colunasGuardadas * linhas;
+        int caracteresGuardados = colunasGuardadas - 1;
+        System.arraycopy(estado, inicioDosCaracteres + 1, novo, inicioDosCaracteres,
+                caracteresGuardados - 1);
+        novo[inicioDosCaracteres + caracteresGuardados - 1] = classe;
+
+        int anterior = (colunasGuardadas - 1) * linhas;
+        int atual = (colunasGuardadas - 1) * linhas;
+        novo[atual] = Math.min(estado[anterior] + 1, infinito);
+        // última linha antes de i cujo caracter é o lido
+        int iTroca = 0;
+        boolean vivo = novo[atual] <= maxDistancia;
+        for (int i = 1; i < linhas; i++) {
+            int classeDaConsulta = classeDaLinha[i];
+            int valor = estado[anterior + i - 1] + (classe == classeDaConsulta ? 0 : 1);
+            valor = Math.min(valor, estado[anterior + i] + 1);
+            valor = Math.min(valor, novo[atual + i - 1] + 1);
+            if (iTroca > 0) {
+                // t caracteres atrás foi lido o caracter desta linha da consulta
+                for (int t = 1; t < colunasGuardadas; t++) {
+                    if (estado[inicioDosCaracteres + caracteresGuardados - t] == classeDaConsulta) {
+                        int coluna = (colunasGuardadas - 1 - t) * linhas;
+                        valor = Math.min(valor, estado[coluna + iTroca - 1] + (i - iTroca - 1) + 1 + (t - 1));
+                        break;
+                    }
+                }
+            }
+            novo[atual + i] = Math.min(valor, infinito);
+            if (classe != 0 && classeDaConsulta == classe) {
+                iTroca = i;
+            }
+        }
+        for (int c = 0; c < inicioDosCaracteres && !vivo; c++) {
+            vivo = novo[c] <= maxDistancia;
+        }
+        if (!vivo) {
+            return ESTADO_MORTO;
+        }
+        return internar(novo);
+    }
+
+    private int internar(int[] estado) {
+        Estado chave = new Estado(estado);
+        Integer id = idDoEstado.get(chave);
+        if (id != null) {
+            return id;
+        }
+        int novoId = estados.size();
+        estados.add(estado);
+        idDoEstado.put(chave, novoId);
+        if ((novoId + 1) * quantidadeDeClasses > transicoes.length) {
+            transicoes = Arrays.copyOf(transicoes, 2 * transicoes.length);
+            distanciaDoEstado = Arrays.copyOf(distanciaDoEstado, 2 * distanciaDoEstado.length);
+        }
+        Arrays.fill(transicoes, novoId * quantidadeDeClasses, (novoId + 1) * quantidadeDeClasses,
+                DESCONHECIDA);
+        int distancia = estado[colunasGuardadas * linhas - 1];
+        distanciaDoEstado[novoId] = distancia <= maxDistancia ? distancia : -1;
+        return novoId;
+    }
+
+    private static final class Estado {
+
+        private final int[] valores;
+        private final int hash;
+
+        Estado(int[] valores) {
+            this.valores = valores;
+            this.hash = Arrays.hashCode(valores);
+        }
+
+        @Override
+        public boolean equals(Object objeto) {
+            return objeto instanceof Estado && Arrays.equals(valores, ((Estado) objeto).valores);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * A list of terms searched with {@link DamerauLevenshtein}, where cheap lower
+ * bounds of the distance reject most terms before the kernel runs.
+ * <p>
+ * Every character is hashed into one of {@value #GRUPOS} groups. For every
+ * term the filter keeps, in primitive arrays, its length, a 64-bit signature
+ * with the bit of every group it uses and the number of its characters in
+ * each group. Let X be the number of characters of the query left over once
+ * the term's characters are matched against them, and Y the number of the
+ * term's characters left over; X - Y is the difference of the lengths.
+ * Substitutions, removals and insertions each fix at most one of them and
+ * swaps fix none, since they keep the characters, so the distance is at least
+ * {@code min(X, Y) * min(substituicao, remocao + insercao)} plus the rest of
+ * X in removals and the rest of Y in insertions. The bound is tried with
+ * estimates of X and Y of increasing cost: from the lengths alone, from the
+ * groups missing in either signature, and from the group counts.
+ * <p>
+ * When a swap costs less than a removal or an insertion, the first row and
+ * column of the matrix can undercut the cost of a script by the difference
+ * (see
+ * {@link DamerauLevenshtein#calcularAlinhamentoLowranceWagner(String, String)}),
+ * so that difference is taken off every bound.
+ * <p>
+ * The filter is immutable apart from its counters and can be searched from
+ * several threads at once. Characters are code points when the calculator
+ * counts code points and UTF-16 chars otherwise; grapheme clusters are not
+ * supported.
+ */
+public final class LowerBoundFilter {
+
+    static final int GRUPOS = 64;
+
+    private static final int MAIOR_CONTAGEM = 0xFF;
+
+    private final DamerauLevenshtein distancia;
+    private final boolean pontosDeCodigo;
+    private final int custoDoPar;
+    private final int folga;
+
+    private final String[] termos;
+    private final int[] tamanhos;
+    private final long[] assinaturas;
+    // GRUPOS contagens por termo, saturadas em MAIOR_CONTAGEM
+    private final byte[] contagens;
+
+    private final LongAdder avaliados = new LongAdder();
+    private final LongAdder rejeitadosPeloTamanho = new LongAdder();
+    private final LongAdder rejeitadosPelaAssinatura = new LongAdder();
+    private final LongAdder rejeitadosPelasContagens = new LongAdder();
+
+    private LowerBoundFilter(DamerauLevenshtein distancia, String[] termos) {
+        if (distancia.unidade() == Unidade.GRAFEMA) {
+            throw new IllegalArgumentException("grapheme clusters are not supported");
+        }
+        this.distancia = distancia;
+        this.pontosDeCodigo = distancia.unidade() == Unidade.PONTO_DE_CODIGO;
+        this.custoDoPar = Math.min(distancia.custoSubstituicao(),
+                distancia.custoRemocao() + distancia.custoInsercao());
+        this.folga = Math.max(0, Math.max(distancia.custoRemocao(), distancia.custoInsercao())
+                - distancia.custoTroca());
+        this.termos = termos;
+        this.tamanhos = new int[termos.length];
+        this.assinaturas = new long[termos.length];
+        this.contagens = new byte[termos.length * GRUPOS];
+        int[] contagem = new int[GRUPOS];
+        for (int t = 0; t < termos.length; t++) {
+            tamanhos[t] = contar(termos[t], contagem);
+            assinaturas[t] = assinatura(contagem);
+            for (int g = 0; g < GRUPOS; g++) {
+                contagens[t * GRUPOS + g] = (byte) Math.min(contagem[g], MAIOR_CONTAGEM);
+            }
+        }
+    }
+
+    /**
+     * Build a filter over the given terms, in their order, for the given
+     * calculator.
+     */
+    public static LowerBoundFilter construir(Iterable<String> termos, DamerauLevenshtein distancia) {
+        List<String> lista = new ArrayList<String>();
+        for (String termo : termos) {
+            lista.add(termo);
+        }
+        return new LowerBoundFilter(distancia, lista.toArray(new String[0]));
+    }
+
+    /**
+     * The number of terms.
+     */
+    public int tamanho() {
+        return termos.length;
+    }
+
+    /**
+     * Every term within {@code maxDistancia} of the query, closest first.
+     */
+    public List<Correspondencia> buscar(String consulta, int maxDistancia) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        Workspace workspace = Workspace.daThreadAtual();
+        int[] contagemDaConsulta = new int[GRUPOS];
+        int tamanhoDaConsulta = contar(consulta, contagemDaConsulta);
+        long assinaturaDaConsulta = assinatura(contagemDaConsulta);
+        long rejeitadosAgoraPeloTamanho = 0;
+        long rejeitadosAgoraPelaAssinatura = 0;
+        long rejeitadosAgoraPelasContagens = 0;
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        for (int t = 0; t < termos.length; t++) {
+            int diferenca = tamanhoDaConsulta - tamanhos[t];
+            if (limiteInferior(Math.max(0, diferenca), Math.max(0, -diferenca)) > maxDistancia) {
+                rejeitadosAgoraPeloTamanho++;
+                continue;
+            }
+            long assinaturaDoTermo = assinaturas[t];
+            int soNaConsulta = Long.bitCount(assinaturaDaConsulta & ~assinaturaDoTermo);
+            int soNoTermo = Long.bitCount(assinaturaDoTermo & ~assinaturaDaConsulta);
+            if (limiteInferior(soNaConsulta, soNoTermo, diferenca) > maxDistancia) {
+                rejeitadosAgoraPelaAssinatura++;
+                continue;
+            }
+            int sobraDaConsulta = 0;
+            int sobraDoTermo = 0;
+            int inicio = t * GRUPOS;
+            for (int g = 0; g < GRUPOS; g++) {
+                int naConsulta = Math.min(contagemDaConsulta[g], MAIOR_CONTAGEM);
+                int noTermo = contagens[inicio + g] & 0xFF;
+                if (naConsulta > noTermo) {
+                    sobraDaConsulta += naConsulta - noTermo;
+                } else {
+                    sobraDoTermo += noTermo - naConsulta;
+                }
+            }
+            if (limiteInferior(sobraDaConsulta, sobraDoTermo, diferenca) > maxDistancia) {
+                rejeitadosAgoraPelasContagens++;
+                continue;
+            }
+            int d = distancia.calcularDistancia(consulta, termos[t], maxDistancia, workspace);
+            if (d >= 0) {
+                resultado.add(new Correspondencia(termos[t], d));
+            }
+        }
+        avaliados.add(termos.length);
+        rejeitadosPeloTamanho.add(rejeitadosAgoraPeloTamanho);
+        rejeitadosPelaAssinatura.add(rejeitadosAgoraPelaAssinatura);
+        rejeitadosPelasContagens.add(rejeitadosAgoraPelasContagens);
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * The bound for estimates of X and Y that need not differ by the
+     * difference of the lengths: each is raised until they do.
+     */
+    private long limiteInferior(int sobraDaConsulta, int sobraDoTermo, int diferenca) {
+        return limiteInferior(Math.max(sobraDaConsulta, sobraDoTermo + diferenca),
+                Math.max(sobraDoTermo, sobraDaConsulta - diferenca));
+    }
+
+    private long limiteInferior(int sobraDaConsulta, int sobraDoTermo) {
+        int pares = Math.min(sobraDaConsulta, sobraDoTermo);
+        return (long) pares * custoDoPar
+                + (long) (sobraDaConsulta - pares) * distancia.custoRemocao()
+                + (long) (sobraDoTermo - pares) * distancia.custoInsercao()
+                - folga;
+    }
+
+    /**
+     * Count the characters of the string in each group, returning the length.
+     */
+    private int contar(String texto, int[] contagem) {
+        Arrays.fill(contagem, 0);
+        int tamanho = 0;
+        for (int i = 0; i < texto.length(); tamanho++) {
+            int caracter = pontosDeCodigo ? texto.codePointAt(i) : texto.charAt(i);
+            i += pontosDeCodigo ? Character.charCount(caracter) : 1;
+            contagem[(caracter * 0x9E3779B9) >>> 26]++;
+        }
+        return tamanho;
+    }
+
+    private static long assinatura(int[] contagem) {
+        long assinatura = 0;
+        for (int g = 0; g < GRUPOS; g++) {
+            if (contagem[g] > 0) {
+                assinatura |= 1L << g;
+            }
+        }
+        return assinatura;
+    }
+
+    /**
+     * The number of terms examined by all searches so far.
+     */
+    public long getAvaliados() {
+        return avaliados.sum();
+    }
+
+    /**
+     * The terms rejected by the difference of the lengths.
+     */
+    public long getRejeitadosPeloTamanho() {
+        return rejeitadosPeloTamanho.sum();
+    }
+
+    /**
+     * The terms rejected by the groups missing in one of the signatures.
+     */
+    public long getRejeitadosPelaAssinatura() {
+        return rejeitadosPelaAssinatura.sum();
+    }
+
+    /**
+     * The terms rejected by the group counts.
+     */
+    public long getRejeitadosPelasContagens() {
+        return rejeitadosPelasContagens.sum();
+    }
+
+    /**
+     * The fraction of the terms examined that never reached the kernel.
+     */
+    public double taxaDeRejeicao() {
+        long total = avaliados.sum();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) (rejeitadosPeloTamanho.sum() + rejeitadosPelaAssinatura.sum()
+                + rejeitadosPelasContagens.sum()) / total;
+    }
+
+    /**
+     * Reset every counter to zero.
+     */
+    public void zerarContadores() {
+        avaliados.reset();
+        rejeitadosPeloTamanho.reset();
+        rejeitadosPelaAssinatura.reset();
+        rejeitadosPelasContagens.reset();
+    }
+}
@@ -0,0 +1,556 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.Unidade;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * Inverted index of q-grams with the count filter, for lookups and
+ * similarity joins among long records such as addresses.
+ * <p>
+ * A string of length n has n - q + 1 q-grams. A substitution, insertion or
+ * deletion touches at most q of them, and a swap of adjacent characters at
+ * most q + 1, so two strings at most e operations apart share at least
+ * {@code max(|a|, |b|) - q + 1 - e * (q + 1)} q-grams, counted with
+ * multiplicity. A distance d allows {@code e = d / menorCustoDeOperacao()}
+ * operations. Records that share fewer q-grams with the query, or whose
+ * length differs from it by more than e, are never verified; the others are
+ * verified with the bounded distance of the calculator. Pairs for which the
+ * bound is not positive cannot be found through the q-grams: those records
+ * are short, and are compared with each other directly, found by a binary
+ * search in the records sorted by length.
+ * <p>
+ * The q-grams are hashed to 64 bits, as in {@link SymSpellIndex}; a collision
+ * only adds to the count of shared q-grams, so it costs a verification and
+ * never a pair. Each posting list is a byte array of varints: the gap to the
+ * previous record and the number of times the q-gram occurs in the record.
+ * Lengths and q-grams count UTF-16 chars or code points, as chosen when the
+ * index is built, and only calculators counting the same unit can search it;
+ * grapheme clusters are not supported.
+ * <p>
+ * The join splits the records into blocks of {@value #BLOCO_DE_REGISTROS}
+ * spread over a {@link ForkJoinPool}, as in
+ * {@link br.com.bibiteix.damerau.DistanceMatrix}; each worker counts shared
+ * q-grams in arrays of its own. The index is immutable and can be searched
+ * from several threads at once.
+ */
+public final class QGramIndex {
+
+    static final int BLOCO_DE_REGISTROS = 256;
+
+    private static final long VAZIO = 0L;
+
+    private final int q;
+    private final Unidade unidade;
+    private final String[] registros;
+    // tamanho de cada registro na unidade do índice
+    private final int[] tamanhos;
+    // os registros em ordem de tamanho, para achar os curtos por busca binária
+    private final int[] porTamanho;
+    // tabela de espalhamento: hash do q-grama -> lista de ocorrências
+    private final long[] chaves;
+    private final int[] listas;
+    private final byte[][] ocorrencias;
+    private final ThreadLocal<Contagem> contagens;
+
+    private QGramIndex(int q, Unidade unidade, String[] registros, int[] tamanhos, int[] porTamanho,
+            long[] chaves, int[] listas, byte[][] ocorrencias) {
+        this.q = q;
+        this.unidade = unidade;
+        this.registros = registros;
+        this.tamanhos = tamanhos;
+        this.porTamanho = porTamanho;
+        this.chaves = chaves;
+        this.listas = listas;
+        this.ocorrencias = ocorrencias;
+        this.contagens = ThreadLocal.withInitial(() -> new Contagem(registros.length, q, unidade));
+    }
+
+    /**
+     * Build an index of the q-grams of UTF-16 chars of the given records,
+     * which keep their position in the array as their index.
+     */
+    public static QGramIndex construir(String[] registros, int q) {
+        return construir(registros, q, Unidade.UTF16);
+    }
+
+    /**
+     * Build an index of the q-grams of the given records, counting UTF-16
+     * chars or code points. The records keep their position in the array as
+     * their index.
+     */
+    public static QGramIndex construir(String[] registros, int q, Unidade unidade) {
+        if (q <= 0) {
+            throw new IllegalArgumentException("q must be positive");
+        }
+        if (unidade == Unidade.GRAFEMA) {
+            throw new IllegalArgumentException("grapheme clusters are not supported");
+        }
+        registros = registros.clone();
+        int[] tamanhos = new int[registros.length];
+        Gramas gramas = new Gramas(q, unidade);
+
+        // primeira passada: cria as listas e mede os bytes de cada uma
+        long[] chaves = new long[16];
+        int[] listas = new int[16];
+        int quantidadeDeListas = 0;
+        int[] bytes = new int[16];
+        int[] ultimoRegistro = new int[16];
+        for (int r = 0; r < registros.length; r++) {
+            int distintos = gramas.gerar(registros[r]);
+            tamanhos[r] = gramas.tamanho;
+            for (int g = 0; g < distintos; g++) {
+                if (2 * (quantidadeDeListas + 1) > chaves.length) {
+                    long[] chavesAntigas = chaves;
+                    int[] listasAntigas = listas;
+                    chaves = new long[2 * chavesAntigas.length];
+                    listas = new int[2 * chavesAntigas.length];
+                    for (int k = 0; k < chavesAntigas.length; k++) {
+                        if (chavesAntigas[k] != VAZIO) {
+                            int slot = posicao(chaves, chavesAntigas[k]);
+                            chaves[slot] = chavesAntigas[k];
+                            listas[slot] = listasAntigas[k];
+                        }
+                    }
+                }
+                int slot = posicao(chaves, gramas.hashes[g]);
+                if (chaves[slot] == VAZIO) {
+                    chaves[slot] = gramas.hashes[g];
+                    listas[slot] = quantidadeDeListas++;
+                    if (quantidadeDeListas > bytes.length) {
+                        bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+                        ultimoRegistro = Arrays.copyOf(ultimoRegistro, 2 * ultimoRegistro.length);
+                    }
+                }
+                int lista = listas[slot];
+                bytes[lista] += tamanhoDoVarint(r - ultimoRegistro[lista])
+                        + tamanhoDoVarint(gramas.vezes[g]);
+                ultimoRegistro[lista] = r;
+            }
+        }
+
+        // segunda passada: escreve as ocorrências
+        byte[][] ocorrencias = new byte[quantidadeDeListas][];
+        for (int lista = 0; lista < quantidadeDeListas; lista++) {
+            ocorrencias[lista] = new byte[bytes[lista]];
+        }
+        Arrays.fill(bytes, 0, quantidadeDeListas, 0);
+        Arrays.fill(ultimoRegistro, 0, quantidadeDeListas, 0);
+        for (int r = 0; r < registros.length; r++) {
+            int distintos = gramas.gerar(registros[r]);
+            for (int g = 0; g < distintos; g++) {
+                int lista = listas[posicao(chaves, gramas.hashes[g])];
+                byte[] destino = ocorrencias[lista];
+                int posicao = escreverVarint(destino, bytes[lista], r - ultimoRegistro[lista]);
+                bytes[lista] = escreverVarint(destino, posicao, gramas.vezes[g]);
+                ultimoRegistro[lista] = r;
+            }
+        }
+
+        // ordena os índices pelo tamanho, em um long por registro
+        long[] ordem = new long[registros.length];
+        for (int r = 0; r < registros.length; r++) {
+            ordem[r] = (long) tamanhos[r] << 32 | r;
+        }
+        Arrays.sort(ordem);
+        int[] porTamanho = new int[registros.length];
+        for (int k = 0; k < registros.length; k++) {
+            porTamanho[k] = (int) ordem[k];
+        }
+        return new QGramIndex(q, unidade, registros, tamanhos, porTamanho, chaves, listas, ocorrencias);
+    }
+
+    /**
+     * The number of records.
+     */
+    public int tamanho() {
+        return registros.length;
+    }
+
+    /**
+     * Approximate number of bytes taken by the index itself, leaving out the
+     * record strings, which are shared with the caller.
+     */
+    public long bytesOcupados() {
+        long bytes = 8L * chaves.length + 4L * listas.length + 4L * porTamanho.length
+                + 8L * registros.length;
+        for (byte[] lista : ocorrencias) {
+            bytes += lista.length + 16;
+        }
+        return bytes;
+    }
+
+    /**
+     * What counts as one character in the lengths and q-grams.
+     */
+    public Unidade unidade() {
+        return unidade;
+    }
+
+    /**
+     * Every record within {@code maxDistancia} of the query, closest first.
+     * The calculator must count the unit the index was built with.
+     */
+    public List<Correspondencia> buscar(String consulta, int maxDistancia,
+            CalculadoraDeDistancia calculadora) {
+        int operacoes = operacoes(maxDistancia, calculadora);
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        Contagem contagem = contagens.get();
+        Workspace workspace = Workspace.daThreadAtual();
+        int tocados = contagem.contar(this, consulta, -1);
+        int tamanhoDaConsulta = contagem.gramas.tamanho;
+        for (int k = 0; k < tocados; k++) {
+            int registro = contagem.tocados[k];
+            int compartilhados = contagem.compartilhados[registro];
+            contagem.compartilhados[registro] = 0;
+            if (passa(tamanhoDaConsulta, tamanhos[registro], compartilhados, operacoes)) {
+                int distancia = calculadora.distancia(consulta, registros[registro], maxDistancia,
+                        workspace);
+                if (distancia >= 0) {
+                    resultado.add(new Correspondencia(registros[registro], distancia));
+                }
+            }
+        }
+        int maiorCurto = maiorCurto(operacoes);
+        if (tamanhoDaConsulta <= maiorCurto) {
+            int k = primeiroComTamanho(Math.max(0, tamanhoDaConsulta - operacoes));
+            for (; k < porTamanho.length; k++) {
+                int registro = porTamanho[k];
+                int tamanho = tamanhos[registro];
+                if (tamanho > maiorCurto || tamanho > tamanhoDaConsulta + operacoes) {
+                    break;
+                }
+                int distancia = calculadora.distancia(consulta, registros[registro], maxDistancia,
+                        workspace);
+                if (distancia >= 0) {
+                    resultado.add(new Correspondencia(registros[registro], distancia));
+                }
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * Report every pair of records within {@code maxDistancia} of each other,
+     * on the common fork-join pool.
+     */
+    public void juntar(int maxDistancia, CalculadoraDeDistancia calculadora,
+            ConsumidorDePares consumidor) {
+        juntar(maxDistancia, calculadora, consumidor, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Report every pair of records within {@code maxDistancia} of each other,
+     * on the given pool. Every pair is reported once, from its first record
+     * to its second one. The calculator must count the unit the index was
+     * built with.
+     */
+    public void juntar(int maxDistancia, CalculadoraDeDistancia calculadora,
+            ConsumidorDePares consumidor, ForkJoinPool pool) {
+        int operacoes = operacoes(maxDistancia, calculadora);
+        int blocos = (registros.length + BLOCO_DE_REGISTROS - 1) / BLOCO_DE_REGISTROS;
+        if (blocos > 0) {
+            pool.invoke(new Tarefa(this, maxDistancia, operacoes, calculadora, consumidor, 0, blocos));
+        }
+    }
+
+    /**
+     * The pairs of the given record with the records after it.
+     */
+    private void juntar(int primeiro, int maxDistancia, int operacoes,
+            CalculadoraDeDistancia calculadora, ConsumidorDePares consumidor, Contagem contagem,
+            Workspace workspace) {
+        int tamanhoDoPrimeiro = tamanhos[primeiro];
+        int tocados = contagem.contar(this, registros[primeiro], primeiro);
+        for (int k = 0; k < tocados; k++) {
+            int segundo = contagem.tocados[k];
+            int compartilhados = contagem.compartilhados[segundo];
+            contagem.compartilhados[segundo] = 0;
+            if (passa(tamanhoDoPrimeiro, tamanhos[segundo], compartilhados, operacoes)) {
+                verificar(primeiro, segundo, maxDistancia, calculadora, consumidor, workspace);
+            }
+        }
+        int maiorCurto = maiorCurto(operacoes);
+        if (tamanhoDoPrimeiro > maiorCurto) {
+            return;
+        }
+        // entre dois registros curtos o filtro não diz nada: compara com os curtos de tamanho próximo
+        int k = primeiroComTamanho(Math.max(0, tamanhoDoPrimeiro - operacoes));
+        for (; k < porTamanho.length; k++) {
+            int segundo = porTamanho[k];
+            int tamanho = tamanhos[segundo];
+            if (tamanho > maiorCurto || tamanho > tamanhoDoPrimeiro + operacoes) {
+                break;
+            }
+            if (segundo > primeiro) {
+                verificar(primeiro, segundo, maxDistancia, calculadora, consumidor, workspace);
+            }
+        }
+    }
+
+    private void verificar(int primeiro, int segundo, int maxDistancia,
+            CalculadoraDeDistancia calculadora, ConsumidorDePares consumidor, Workspace workspace) {
+        int distancia = calculadora.distancia(registros[primeiro], registros[segundo], maxDistancia,
+                workspace);
+        if (distancia >= 0) {
+            consumidor.aceitar(primeiro, segundo, distancia);
+        }
+    }
+
+    /**
+     * Whether a pair of records can be within the given number of operations,
+     * judging by the length and the shared q-grams. Pairs of short records
+     * never pass: they are compared directly.
+     */
+    private boolean passa(int tamanhoPrimeiro, int tamanhoSegundo, int compartilhados, int operacoes) {
+        if (Math.abs(tamanhoPrimeiro - tamanhoSegundo) > operacoes) {
+            return false;
+        }
+        long minimo = (long) Math.max(tamanhoPrimeiro, tamanhoSegundo) - q + 1
+                - (long) operacoes * (q + 1);
+        return minimo > 0 && compartilhados >= minimo;
+    }
+
+    /**
+     * The longest length for which the count filter cannot reject anything.
+     */
+    private int maiorCurto(int operacoes) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) operacoes * (q + 1) + q - 1);
+    }
+
+    private int primeiroComTamanho(int tamanho) {
+        int inicio = 0;
+        int fim = porTamanho.length;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (tamanhos[porTamanho[meio]] < tamanho) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private int operacoes(int maxDistancia, CalculadoraDeDistancia calculadora) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        if (calculadora.unidade() != unidade) {
+            throw new IllegalArgumentException("the index was built for " + unidade
+                    + ", the calculator counts " + calculadora.unidade());
+        }
+        if (calculadora.menorCustoDeOperacao() <= 0) {
+            throw new IllegalArgumentException("Unsupported cost assignment");
+        }
+        return maxDistancia / calculadora.menorCustoDeOperacao();
+    }
+
+    private static int posicao(long[] chaves, long hash) {
+        int mascara = chaves.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mascara;
+        while (chaves[slot] != VAZIO && chaves[slot] != hash) {
+            slot = (slot + 1) & mascara;
+        }
+        return slot;
+    }
+
+    private static int tamanhoDoVarint(int valor) {
+        int bytes = 1;
+        while ((valor >>>= 7) != 0) {
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Write a varint, seven bits per byte with the high bit set on all but
+     * the last, returning the position after it.
+     */
+    private static int escreverVarint(byte[] destino, int posicao, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            destino[posicao++] = (byte) (valor & 0x7F | 0x80);
+            valor >>>= 7;
+        }
+        destino[posicao++] = (byte) valor;
+        return posicao;
+    }
+
+    /**
+     * Per-thread scratch for counting the q-grams a string shares with every
+     * record: one counter per record, and the list of those touched.
+     */
+    private static final class Contagem {
+
+        final int[] compartilhados;
+        int[] tocados = new int[16];
+        final Gramas gramas;
+
+        Contagem(int registros, int q, Unidade unidade) {
+            this.compartilhados = new int[registros];
+            this.gramas = new Gramas(q, unidade);
+        }
+
+        /**
+         * Count the q-grams the string shares with every record after
+         * {@code depoisDe}, returning how many records were touched. The
+         * length of the string is left in {@link Gramas#tamanho}.
+         */
+        int contar(QGramIndex indice, String texto, int depoisDe) {
+            int distintos = gramas.gerar(texto);
+            int quantidade = 0;
+            for (int g = 0; g < distintos; g++) {
+                int slot = posicao(indice.chaves, gramas.hashes[g]);
+                if (indice.chaves[slot] == VAZIO) {
+                    continue;
+                }
+                int vezesNoTexto = gramas.vezes[g];
+                byte[] lista = indice.ocorrencias[indice.listas[slot]];
+                int registro = 0;
+                int posicao = 0;
+                while (posicao < lista.length) {
+                    int valor = 0;
+                    int deslocamento = 0;
+                    byte b;
+                    do {
+                        b = lista[posicao++];
+                        valor |= (b & 0x7F) << deslocamento;
+                        deslocamento += 7;
+                    } while (b < 0);
+                    registro += valor;
+                    int vezes = 0;
+                    deslocamento = 0;
+                    do {
+                        b = lista[posicao++];
+                        vezes |= (b & 0x7F) << deslocamento;
+                        deslocamento += 7;
+                    } while (b < 0);
+                    if (registro <= depoisDe) {
+                        continue;
+                    }
+                    if (compartilhados[registro] == 0) {
+                        if (quantidade == tocados.length) {
+                            tocados = Arrays.copyOf(tocados, 2 * quantidade);
+                        }
+                        tocados[quantidade++] = registro;
+                    }
+                    compartilhados[registro] += Math.min(vezes, vezesNoTexto);
+                }
+            }
+            return quantidade;
+        }
+    }
+
+    /**
+     * The distinct q-gram hashes of a string, sorted, with the number of times
+     * each occurs.
+     */
+    private static final class Gramas {
+
+        final int q;
+        private final boolean pontosDeCodigo;
+        long[] hashes = new long[16];
+        int[] vezes = new int[16];
+        // tamanho do último texto, na unidade do índice
+        int tamanho;
+        private int[] caracteres = new int[16];
+
+        Gramas(int q, Unidade unidade) {
+            this.q = q;
+            this.pontosDeCodigo = unidade == Unidade.PONTO_DE_CODIGO;
+        }
+
+        int gerar(String texto) {
+            if (caracteres.length < texto.length()) {
+                caracteres = new int[Math.max(texto.length(), 2 * caracteres.length)];
+            }
+            tamanho = 0;
+            for (int i = 0; i < texto.length(); ) {
+                int caracter = pontosDeCodigo ? texto.codePointAt(i) : texto.charAt(i);
+                caracteres[tamanho++] = caracter;
+                i += pontosDeCodigo ? Character.charCount(caracter) : 1;
+            }
+            int quantidade = Math.max(0, tamanho - q + 1);
+            if (hashes.length < quantidade) {
+                hashes = new long[quantidade];
+                vezes = new int[quantidade];
+            }
+            for (int i = 0; i < quantidade; i++) {
+                hashes[i] = espalhar(caracteres, i, q);
+            }
+            Arrays.sort(hashes, 0, quantidade);
+            int distintos = 0;
+            for (int k = 0; k < quantidade; k++) {
+                if (k > 0 && hashes[k] == hashes[k - 1]) {
+                    vezes[distintos - 1]++;
+                } else {
+                    hashes[distintos] = hashes[k];
+                    vezes[distintos++] = 1;
+                }
+            }
+            return distintos;
+        }
+
+        private static long espalhar(int[] caracteres, int inicio, int q) {
+            long h = 0xCBF29CE484222325L;
+            for (int i = inicio; i < inicio + q; i++) {
+                h = (h ^ caracteres[i]) * 0x100000001B3L;
+            }
+            h ^= h >>> 29;
+            h *= 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 32;
+            // o zero marca posições livres da tabela
+            return h == VAZIO ? 1L : h;
+        }
+    }
+
+    /**
+     * A range of record blocks.
+     */
+    private static final class Tarefa extends RecursiveAction {
+
+        private final QGramIndex indice;
+        private final int maxDistancia;
+        private final int operacoes;
+        private final CalculadoraDeDistancia calculadora;
+        private final ConsumidorDePares consumidor;
+        private final int inicio;
+        private final int fim;
+
+        Tarefa(QGramIndex indice, int maxDistancia, int operacoes, CalculadoraDeDistancia calculadora,
+                ConsumidorDePares consumidor, int inicio, int fim) {
+            this.indice = indice;
+            this.maxDistancia = maxDistancia;
+            this.operacoes = operacoes;
+            this.calculadora = calculadora;
+            this.consumidor = consumidor;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > 1) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new Tarefa(indice, maxDistancia, operacoes, calculadora, consumidor, inicio, meio),
+                        new Tarefa(indice, maxDistancia, operacoes, calculadora, consumidor, meio, fim));
+                return;
+            }
+            Contagem contagem = indice.contagens.get();
+            Workspace workspace = Workspace.daThreadAtual();
+            int ultimo = Math.min(indice.registros.length, fim * BLOCO_DE_REGISTROS);
+            for (int r = inicio * BLOCO_DE_REGISTROS; r < ultimo; r++) {
+                indice.juntar(r, maxDistancia, operacoes, calculadora, consumidor, contagem, workspace);
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.Arrays;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * Self-join of a set of strings: every pair at most a given distance apart,
+ * found with the partition filter of PassJoin and streamed to a
+ * {@link ConsumidorDePares}.
+ * <p>
+ * A distance d allows at most {@code e = d / menorCustoDeOperacao()}
+ * operations. The strings are visited by increasing length. Each one is
+ * split into e + 1 segments and indexed under every segment, keyed by its
+ * length, the segment number and the characters of the segment. Before that,
+ * it is probed against the strings already indexed whose length is at most e
+ * shorter: a pair that is close enough leaves one segment of the shorter
+ * string untouched, so that segment occurs in the longer string, at a
+ * position shifted by the difference between insertions and deletions made
+ * before it. Only those shifts are probed.
+ * <p>
+ * A swap across the boundary of two segments changes the last character of
+ * one and the first of the next, so one operation could break two segments.
+ * Every segment but the first is therefore keyed without its first
+ * character. A swap, substitution, insertion or deletion at that character
+ * leaves the key whole, and each operation breaks at most one key. This also
+ * holds for swaps with characters removed in between: the removal just
+ * before the second character is charged for its segment. Keys must keep at
+ * least one character, so strings shorter than 2 * (e + 1) are not indexed.
+ * They are compared directly with every string whose length is within e of
+ * theirs.
+ * <p>
+ * Candidates are verified with the bounded distance of the calculator, once
+ * per pair. The index keeps its lists in primitive arrays, and the hashes of
+ * the keys in an open-addressing table, as in {@link SymSpellIndex}. A
+ * collision only adds a candidate that fails verification. Lengths and
+ * segments count code points when the calculator counts code points and
+ * UTF-16 chars otherwise; grapheme clusters are not supported.
+ */
+public final class SimilarityJoin {
+
+    private static final DamerauLevenshtein DISTANCIA = new DamerauLevenshtein(1, 1, 1, 1);
+
+    private static final long VAZIO = 0L;
+
+    private SimilarityJoin() {
+    }
+
+    /**
+     * Report every pair of strings within {@code maxDistancia} unit
+     * operations of each other, by their index in {@code dados}.
+     */
+    public static void juntar(String[] dados, int maxDistancia, ConsumidorDePares consumidor) {
+        juntar(dados, maxDistancia, DISTANCIA, consumidor);
+    }
+
+    /**
+     * Report every pair of strings within {@code maxDistancia} of each other
+     * under the given distance, by their index in {@code dados}. Every pair is
+     * reported once, from its first string to its second one, on the calling
+     * thread.
+     */
+    public static void juntar(String[] dados, int maxDistancia, CalculadoraDeDistancia calculadora,
+            ConsumidorDePares consumidor) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        if (calculadora.menorCustoDeOperacao() <= 0) {
+            throw new IllegalArgumentException("Unsupported cost assignment");
+        }
+        if (calculadora.unidade() == Unidade.GRAFEMA) {
+            throw new IllegalArgumentException("grapheme clusters are not supported");
+        }
+        int operacoes = maxDistancia / calculadora.menorCustoDeOperacao();
+        int segmentos = operacoes + 1;
+        int menorIndexado = 2 * segmentos;
+
+        // as strings na unidade da calculadora: as chaves não podem partir um ponto de código
+        int[][] caracteres = new int[dados.length][];
+        boolean pontosDeCodigo = calculadora.unidade() == Unidade.PONTO_DE_CODIGO;
+        for (int i = 0; i < dados.length; i++) {
+            caracteres[i] = pontosDeCodigo ? dados[i].codePoints().toArray() : dados[i].chars().toArray();
+        }
+
+        // os índices em ordem de tamanho, em um long por string
+        long[] ordem = new long[dados.length];
+        for (int i = 0; i < dados.length; i++) {
+            ordem[i] = (long) caracteres[i].length << 32 | i;
+        }
+        Arrays.sort(ordem);
+
+        Indice indice = new Indice();
+        // as strings curtas já visitadas, em ordem de tamanho
+        int[] curtas = new int[16];
+        int quantidadeDeCurtas = 0;
+        // a última string sondada que chegou a cada candidata, para verificar cada par uma vez
+        int[] vistoPor = new int[dados.length];
+        Arrays.fill(vistoPor, -1);
+        Workspace workspace = Workspace.daThreadAtual();
+
+        for (int k = 0; k < ordem.length; k++) {
+            int atual = (int) ordem[k];
+            int[] texto = caracteres[atual];
+            int tamanho = texto.length;
+
+            for (int c = primeiraComTamanho(caracteres, curtas, quantidadeDeCurtas, tamanho - operacoes);
+                    c < quantidadeDeCurtas; c++) {
+                verificar(dados, curtas[c], atual, maxDistancia, calculadora, consumidor, workspace);
+            }
+
+            for (int tamanhoIndexado = Math.max(menorIndexado, tamanho - operacoes);
+                    tamanhoIndexado <= tamanho; tamanhoIndexado++) {
+                int diferenca = tamanho - tamanhoIndexado;
+                // deslocamentos possíveis: inserções menos remoções antes do segmento
+                int menorDeslocamento = -((operacoes - diferenca) / 2);
+                int maiorDeslocamento = (operacoes + diferenca) / 2;
+                for (int s = 0; s < segmentos; s++) {
+                    int inicio = inicioDaChave(tamanhoIndexado, segmentos, s);
+                    int tamanhoDaChave = inicioDoSegmento(tamanhoIndexado, segmentos, s + 1) - inicio;
+                    int primeira = Math.max(0, inicio + menorDeslocamento);
+                    int ultima = Math.min(tamanho - tamanhoDaChave, inicio + maiorDeslocamento);
+                    for (int p = primeira; p <= ultima; p++) {
+                        long hash = espalhar(tamanhoIndexado, s, texto, p, p + tamanhoDaChave);
+                        for (int no = indice.primeiro(hash); no >= 0; no = indice.proximos[no]) {
+                            int candidata = indice.valores[no];
+                            if (vistoPor[candidata] == atual) {
+                                continue;
+                            }
+                            vistoPor[candidata] = atual;
+                            verificar(dados, candidata, atual, maxDistancia, calculadora, consumidor,
+                                    workspace);
+                        }
+                    }
+                }
+            }
+
+            if (tamanho < menorIndexado) {
+                if (quantidadeDeCurtas == curtas.length) {
+                    curtas = Arrays.copyOf(curtas, 2 * quantidadeDeCurtas);
+                }
+                curtas[quantidadeDeCurtas++] = atual;
+                continue;
+            }
+            for (int s = 0; s < segmentos; s++) {
+                int inicio = inicioDaChave(tamanho, segmentos, s);
+                int fim = inicioDoSegmento(tamanho, segmentos, s + 1);
+                indice.adicionar(espalhar(tamanho, s, texto, inicio, fim), atual);
+            }
+        }
+    }
+
+    private static void verificar(String[] dados, int uma, int outra, int maxDistancia,
+            CalculadoraDeDistancia calculadora, ConsumidorDePares consumidor, Workspace workspace) {
+        int primeira = Math.min(uma, outra);
+        int segunda = Math.max(uma, outra);
+        int distancia = calculadora.distancia(dados[primeira], dados[segunda], maxDistancia, workspace);
+        if (distancia >= 0) {
+            consumidor.aceitar(primeira, segunda, distancia);
+        }
+    }
+
+    private static int inicioDoSegmento(int tamanho, int segmentos, int segmento) {
+        return (int) ((long) segmento * tamanho / segmentos);
+    }
+
+    /**
+     * Where the key of a segment starts: past the first character, except in
+     * the first segment.
+     */
+    private static int inicioDaChave(int tamanho, int segmentos, int segmento) {
+        return inicioDoSegmento(tamanho, segmentos, segmento) + (segmento > 0 ? 1 : 0);
+    }
+
+    private static int primeiraComTamanho(int[][] caracteres, int[] curtas, int quantidade, int tamanho) {
+        int inicio = 0;
+        int fim = quantidade;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (caracteres[curtas[meio]].length < tamanho) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private static long espalhar(int tamanho, int segmento, int[] texto, int inicio, int fim) {
+        long h = 0xCBF29CE484222325L ^ ((long) tamanho << 32 | segmento);
+        for (int i = inicio; i < fim; i++) {
+            h = (h ^ texto[i]) * 0x100000001B3L;
+        }
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        // o zero marca posições livres da tabela
+        return h == VAZIO ? 1L : h;
+    }
+
+    /**
+     * Lists of strings by key hash: an open-addressing table from hash to the
+     * newest node, and the nodes chained in primitive arrays.
+     */
+    private static final class Indice {
+
+        private long[] chaves = new long[16];
+        private int[] cabecas = new int[16];
+        private int quantidadeDeChaves;
+        int[] valores = new int[16];
+        int[] proximos = new int[16];
+        private int quantidadeDeNos;
+
+        int primeiro(long hash) {
+            int slot = posicao(chaves, hash);
+            return chaves[slot] == VAZIO ? -1 : cabecas[slot];
+        }
+
+        void adicionar(long hash, int valor) {
+            if (2 * (quantidadeDeChaves + 1) > chaves.length) {
+                long[] chavesAntigas = chaves;
+                int[] cabecasAntigas = cabecas;
+                chaves = new long[2 * chavesAntigas.length];
+                cabecas = new int[2 * chavesAntigas.length];
+                for (int k = 0; k < chavesAntigas.length; k++) {
+                    if (chavesAntigas[k] != VAZIO) {
+                        int slot = posicao(chaves, chavesAntigas[k]);
+                        chaves[slot] = chavesAntigas[k];
+                        cabecas[slot] = cabecasAntigas[k];
+                    }
+                }
+            }
+            if (quantidadeDeNos == valores.length) {
+                valores = Arrays.copyOf(valores, 2 * quantidadeDeNos);
+                proximos = Arrays.copyOf(proximos, 2 * quantidadeDeNos);
+            }
+            int slot = posicao(chaves, hash);
+            if (chaves[slot] == VAZIO) {
+                chaves[slot] = hash;
+                cabecas[slot] = -1;
+                quantidadeDeChaves++;
+            }
+            valores[quantidadeDeNos] = valor;
+            proximos[quantidadeDeNos] = cabecas[slot];
+            cabecas[slot] = quantidadeDeNos++;
+        }
+
+        private static int posicao(long[] chaves, long hash) {
+            int mascara = chaves.length - 1;
+            int slot = (int) (hash ^ (hash >>> 32)) & mascara;
+            while (chaves[slot] != VAZIO && chaves[slot] != hash) {
+                slot = (slot + 1) & mascara;
+            }
+            return slot;
+        }
+    }
+}
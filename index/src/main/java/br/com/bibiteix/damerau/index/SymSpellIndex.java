@@ -0,0 +1,297 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.Unidade;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * Symmetric delete index (as in SymSpell) for lookups with a small distance.
+ * <p>
+ * If two strings are at most k edit operations apart, deleting at most k
+ * characters from each of them yields a common string: a substitution or a
+ * swap costs one deletion on each side, and an insertion or a deletion one
+ * deletion on one side. The index stores every such deletion variant of every
+ * dictionary term, keyed by a 64-bit hash, next to the list of terms that
+ * produce it. A lookup generates the variants of the query, gathers the terms
+ * listed under them and verifies each with the bounded distance of the
+ * calculator. Hash collisions only add candidates that fail verification.
+ * <p>
+ * A distance d allows at most {@code d / menorCustoDeOperacao()} operations,
+ * which is the number of deletions generated. The number of variants grows
+ * as the length of a term to that power, so the index is meant for small
+ * distances, typically 1 or 2 unit operations.
+ * <p>
+ * Hashes and term lists live in primitive arrays: an open-addressing table
+ * from hash to group and, for the groups, contiguous runs of term numbers.
+ * The index is immutable and can be searched from several threads at once.
+ * Characters are deleted as the calculator counts them: code points when it
+ * counts code points and UTF-16 chars otherwise; grapheme clusters are not
+ * supported.
+ */
+public final class SymSpellIndex {
+
+    private static final long VAZIO = 0L;
+
+    private final CalculadoraDeDistancia calculadora;
+    private final int maxDistancia;
+    private final int maxRemocoes;
+    private final String[] termos;
+    // tabela de espalhamento: hash da variante -> grupo
+    private final long[] chaves;
+    private final int[] grupos;
+    // os termos do grupo g são termosDosGrupos[inicioDosGrupos[g]] até [inicioDosGrupos[g + 1] - 1]
+    private final int[] inicioDosGrupos;
+    private final int[] termosDosGrupos;
+
+    private SymSpellIndex(CalculadoraDeDistancia calculadora, int maxDistancia, int maxRemocoes,
+            String[] termos, long[] chaves, int[] grupos, int[] inicioDosGrupos, int[] termosDosGrupos) {
+        this.calculadora = calculadora;
+        this.maxDistancia = maxDistancia;
+        this.maxRemocoes = maxRemocoes;
+        this.termos = termos;
+        this.chaves = chaves;
+        this.grupos = grupos;
+        this.inicioDosGrupos = inicioDosGrupos;
+        this.termosDosGrupos = termosDosGrupos;
+    }
+
+    /**
+     * Build an index that answers lookups up to {@code maxDistancia} under
+     * the given distance. Repeated terms are kept once.
+     */
+    public static SymSpellIndex construir(Iterable<String> termos, int maxDistancia,
+            CalculadoraDeDistancia calculadora) {
+        if (maxDistancia < 0) {
+            throw new IllegalArgumentException("maxDistancia must not be negative");
+        }
+        if (calculadora.menorCustoDeOperacao() <= 0) {
+            throw new IllegalArgumentException("Unsupported cost assignment");
+        }
+        if (calculadora.unidade() == Unidade.GRAFEMA) {
+            throw new IllegalArgumentException("grapheme clusters are not supported");
+        }
+        int maxRemocoes = maxDistancia / calculadora.menorCustoDeOperacao();
+        Set<String> vistos = new HashSet<String>();
+        List<String> distintos = new ArrayList<String>();
+        for (String termo : termos) {
+            if (vistos.add(termo)) {
+                distintos.add(termo);
+            }
+        }
+        String[] termosDistintos = distintos.toArray(new String[distintos.size()]);
+
+        // primeira passada: cria os grupos e conta os termos de cada um
+        long[] chaves = new long[16];
+        int[] grupos = new int[16];
+        int quantidadeDeGrupos = 0;
+        int[] contagens = new int[16];
+        Variantes variantes = new Variantes(maxRemocoes, calculadora.unidade());
+        for (String termo : termosDistintos) {
+            int quantidade = variantes.gerar(termo);
+            for (int v = 0; v < quantidade; v++) {
+                if (2 * (quantidadeDeGrupos + 1) > chaves.length) {
+                    long[] chavesAntigas = chaves;
+                    int[] gruposAntigos = grupos;
+                    chaves = new long[2 * chavesAntigas.length];
+                    grupos = new int[2 * chavesAntigas.length];
+                    for (int k = 0; k < chavesAntigas.length; k++) {
+                        if (chavesAntigas[k] != VAZIO) {
+                            int slot = posicao(chaves, chavesAntigas[k]);
+                            chaves[slot] = chavesAntigas[k];
+                            grupos[slot] = gruposAntigos[k];
+                        }
+                    }
+                }
+                long hash = variantes.hashes[v];
+                int slot = posicao(chaves, hash);
+                if (chaves[slot] == VAZIO) {
+                    chaves[slot] = hash;
+                    grupos[slot] = quantidadeDeGrupos++;
+                    if (quantidadeDeGrupos > contagens.length) {
+                        contagens = Arrays.copyOf(contagens, 2 * contagens.length);
+                    }
+                }
+                contagens[grupos[slot]]++;
+            }
+        }
+
+        // segunda passada: preenche os termos de cada grupo
+        int[] inicioDosGrupos = new int[quantidadeDeGrupos + 1];
+        for (int g = 0; g < quantidadeDeGrupos; g++) {
+            inicioDosGrupos[g + 1] = inicioDosGrupos[g] + contagens[g];
+        }
+        int[] proximaPosicao = Arrays.copyOf(inicioDosGrupos, quantidadeDeGrupos);
+        int[] termosDosGrupos = new int[inicioDosGrupos[quantidadeDeGrupos]];
+        for (int t = 0; t < termosDistintos.length; t++) {
+            int quantidade = variantes.gerar(termosDistintos[t]);
+            for (int v = 0; v < quantidade; v++) {
+                int grupo = grupos[posicao(chaves, variantes.hashes[v])];
+                termosDosGrupos[proximaPosicao[grupo]++] = t;
+            }
+        }
+        return new SymSpellIndex(calculadora, maxDistancia, maxRemocoes, termosDistintos, chaves,
+                grupos, inicioDosGrupos, termosDosGrupos);
+    }
+
+    /**
+     * The number of distinct terms in the index.
+     */
+    public int tamanho() {
+        return termos.length;
+    }
+
+    /**
+     * Approximate number of bytes taken by the index itself, leaving out the
+     * term strings, which are shared with the caller.
+     */
+    public long bytesOcupados() {
+        return 8L * chaves.length + 4L * grupos.length + 4L * inicioDosGrupos.length
+                + 4L * termosDosGrupos.length + 4L * termos.length;
+    }
+
+    /**
+     * Every term within the distance the index was built for, closest first.
+     */
+    public List<Correspondencia> buscar(String consulta) {
+        return buscar(consulta, maxDistancia);
+    }
+
+    /**
+     * Every term within {@code maxDistancia} of the query, closest first. The
+     * limit may not exceed the one the index was built for.
+     */
+    public List<Correspondencia> buscar(String consulta, int maxDistancia) {
+        if (maxDistancia < 0 || maxDistancia > this.maxDistancia) {
+            throw new IllegalArgumentException("maxDistancia must be between 0 and " + this.maxDistancia);
+        }
+        Variantes variantes = new Variantes(Math.min(maxRemocoes,
+                maxDistancia / calculadora.menorCustoDeOperacao()), calculadora.unidade());
+        int quantidade = variantes.gerar(consulta);
+        int[] candidatos = new int[16];
+        int quantidadeDeCandidatos = 0;
+        for (int v = 0; v < quantidade; v++) {
+            int slot = posicao(chaves, variantes.hashes[v]);
+            if (chaves[slot] == VAZIO) {
+                continue;
+            }
+            int grupo = grupos[slot];
+            int inicio = inicioDosGrupos[grupo];
+            int fim = inicioDosGrupos[grupo + 1];
+            if (quantidadeDeCandidatos + fim - inicio > candidatos.length) {
+                candidatos = Arrays.copyOf(candidatos,
+                        Math.max(2 * candidatos.length, quantidadeDeCandidatos + fim - inicio));
+            }
+            System.arraycopy(termosDosGrupos, inicio, candidatos, quantidadeDeCandidatos, fim - inicio);
+            quantidadeDeCandidatos += fim - inicio;
+        }
+        Arrays.sort(candidatos, 0, quantidadeDeCandidatos);
+
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        Workspace workspace = Workspace.daThreadAtual();
+        for (int c = 0; c < quantidadeDeCandidatos; c++) {
+            if (c > 0 && candidatos[c] == candidatos[c - 1]) {
+                continue;
+            }
+            String termo = termos[candidatos[c]];
+            int distancia = calculadora.distancia(consulta, termo, maxDistancia, workspace);
+            if (distancia >= 0) {
+                resultado.add(new Correspondencia(termo, distancia));
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    private static int posicao(long[] chaves, long hash) {
+        int mascara = chaves.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mascara;
+        while (chaves[slot] != VAZIO && chaves[slot] != hash) {
+            slot = (slot + 1) & mascara;
+        }
+        return slot;
+    }
+
+    /**
+     * Generates the distinct hashes of the strings obtained by deleting up to
+     * a given number of characters, including none.
+     */
+    private static final class Variantes {
+
+        private final int maxRemocoes;
+        private final boolean pontosDeCodigo;
+        long[] hashes = new long[16];
+        private int quantidade;
+        // caracteres da variante em cada profundidade da recursão
+        private int[][] niveis = new int[0][];
+
+        Variantes(int maxRemocoes, Unidade unidade) {
+            this.maxRemocoes = maxRemocoes;
+            this.pontosDeCodigo = unidade == Unidade.PONTO_DE_CODIGO;
+        }
+
+        /**
+         * @return the number of distinct hashes, stored sorted at the start
+         *         of {@link #hashes}.
+         */
+        int gerar(String termo) {
+            int tamanho = pontosDeCodigo ? termo.codePointCount(0, termo.length()) : termo.length();
+            int profundidades = Math.min(maxRemocoes, tamanho) + 1;
+            if (niveis.length < profundidades || niveis[0].length < tamanho) {
+                niveis = new int[profundidades][Math.max(tamanho, 16)];
+            }
+            int[] caracteres = niveis[0];
+            for (int i = 0, p = 0; i < tamanho; i++) {
+                caracteres[i] = pontosDeCodigo ? termo.codePointAt(p) : termo.charAt(p);
+                p += pontosDeCodigo ? Character.charCount(caracteres[i]) : 1;
+            }
+            quantidade = 0;
+            gerar(0, tamanho, 0);
+            Arrays.sort(hashes, 0, quantidade);
+            int distintos = 0;
+            for (int k = 0; k < quantidade; k++) {
+                if (k == 0 || hashes[k] != hashes[k - 1]) {
+                    hashes[distintos++] = hashes[k];
+                }
+            }
+            return distintos;
+        }
+
+        private void gerar(int profundidade, int tamanho, int inicio) {
+            int[] atual = niveis[profundidade];
+            if (quantidade == hashes.length) {
+                hashes = Arrays.copyOf(hashes, 2 * quantidade);
+            }
+            hashes[quantidade++] = espalhar(atual, tamanho);
+            if (profundidade == maxRemocoes || tamanho == 0) {
+                return;
+            }
+            int[] proximo = niveis[profundidade + 1];
+            // remover em posições crescentes gera cada conjunto de remoções uma única vez
+            for (int i = inicio; i < tamanho; i++) {
+                System.arraycopy(atual, 0, proximo, 0, i);
+                System.arraycopy(atual, i + 1, proximo, i, tamanho - i - 1);
+                gerar(profundidade + 1, tamanho - 1, i);
+            }
+        }
+
+        private static long espalhar(int[] caracteres, int tamanho) {
+            long h = 0xCBF29CE484222325L ^ tamanho;
+            for (int i = 0; i < tamanho; i++) {
+                h = (h ^ caracteres[i]) * 0x100000001B3L;
+            }
+            h ^= h >>> 29;
+            h *= 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 32;
+            // o zero marca posições livres da tabela
+            return h == VAZIO ? 1L : h;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.bibiteix.damerau.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+
+class DictionaryTrieTest {
+
+    @Test
+    void concordaComAForcaBruta() {
+        Random aleatorio = new Random(19);
+        for (int caso = 0; caso < 200; caso++) {
+            int remocao = 1 + aleatorio.nextInt(3);
+            int insercao = 1 + aleatorio.nextInt(3);
+            int substituicao = 1 + aleatorio.nextInt(4);
+            int troca = Math.max((remocao + insercao + 1) / 2, 1 + aleatorio.nextInt(4));
+            if (caso % 2 == 0) {
+                remocao = insercao = substituicao = troca = 1;
+            }
+            Unidade unidade = caso % 3 == 0 ? Unidade.PONTO_DE_CODIGO : Unidade.UTF16;
+            DamerauLevenshtein distancia = new DamerauLevenshtein(remocao, insercao, substituicao, troca,
+                    unidade);
+            int alfabeto = 2 + aleatorio.nextInt(6);
+            List<String> termos = new ArrayList<String>();
+            for (int i = 0; i < 300; i++) {
+                termos.add(i > 0 && aleatorio.nextBoolean()
+                        ? Textos.alterada(aleatorio, termos.get(aleatorio.nextInt(i)), aleatorio.nextInt(3),
+                                alfabeto)
+                        : Textos.comEmojis(aleatorio, aleatorio.nextInt(10), alfabeto));
+            }
+            DictionaryTrie trie = DictionaryTrie.construir(termos, unidade);
+            for (int q = 0; q < 5; q++) {
+                String consulta = Textos.comEmojis(aleatorio, aleatorio.nextInt(10), alfabeto);
+                int maxDistancia = aleatorio.nextInt(5);
+                assertEquals(Textos.buscar(new LinkedHashSet<String>(termos), consulta, maxDistancia,
+                        distancia), trie.buscar(consulta, maxDistancia, distancia));
+            }
+        }
+    }
+
+    @Test
+    void contaPontosDeCodigo() {
+        DamerauLevenshtein distancia = new DamerauLevenshtein(1, 1, 1, 1, Unidade.PONTO_DE_CODIGO);
+        DictionaryTrie trie = DictionaryTrie.construir(Arrays.asList("ab😀", "abc"),
+                Unidade.PONTO_DE_CODIGO);
+        assertEquals(Arrays.asList(new Correspondencia("ab😀", 0), new Correspondencia("abc", 1)),
+                trie.buscar("ab😀", 1, distancia));
+    }
+
+    @Test
+    void recusaOutraUnidade() {
+        DictionaryTrie trie = DictionaryTrie.construir(Collections.singletonList("a"));
+        assertThrows(IllegalArgumentException.class, () -> trie.buscar("a", 1,
+                new DamerauLevenshtein(1, 1, 1, 1, Unidade.PONTO_DE_CODIGO)));
+        assertThrows(IllegalArgumentException.class, () -> DictionaryTrie.construir(
+                Collections.singletonList("a"), Unidade.GRAFEMA));
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.bibiteix.damerau.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+import br.com.bibiteix.damerau.Workspace;
+
+class LevenshteinAutomatonTest {
+
+    @Test
+    void concordaComCalcularDistancia() {
+        Random aleatorio = new Random(29);
+        DamerauLevenshtein distancia = new DamerauLevenshtein(1, 1, 1, 1);
+        for (int caso = 0; caso < 300; caso++) {
+            int alfabeto = 2 + aleatorio.nextInt(6);
+            String consulta = Textos.comEmojis(aleatorio, aleatorio.nextInt(12), alfabeto);
+            int maxDistancia = aleatorio.nextInt(4);
+            LevenshteinAutomaton automato = new LevenshteinAutomaton(consulta, maxDistancia);
+            for (int p = 0; p < 50; p++) {
+                String palavra = aleatorio.nextBoolean()
+                        ? Textos.alterada(aleatorio, consulta, aleatorio.nextInt(5), alfabeto)
+                        : Textos.comEmojis(aleatorio, aleatorio.nextInt(12), alfabeto);
+                int d = distancia.calcularDistancia(consulta, palavra);
+                assertEquals(d <= maxDistancia ? d : -1, automato.distancia(palavra),
+                        () -> consulta + " / " + palavra);
+            }
+        }
+    }
+
+    /**
+     * The same dictionary searched by the automaton alone, in sorted and in
+     * random order, and through the trie, in chars and in code points: the
+     * automaton always counts UTF-16 chars.
+     */
+    @Test
+    void buscaEmDicionariosAleatorios() {
+        Random aleatorio = new Random(31);
+        DL2 distancia = new DL2();
+        for (int caso = 0; caso < 100; caso++) {
+            int alfabeto = 2 + aleatorio.nextInt(6);
+            List<String> dicionario = new ArrayList<String>();
+            for (int i = 0; i < 400; i++) {
+                dicionario.add(i > 0 && aleatorio.nextBoolean()
+                        ? Textos.alterada(aleatorio, dicionario.get(aleatorio.nextInt(i)),
+                                aleatorio.nextInt(3), alfabeto)
+                        : Textos.comEmojis(aleatorio, aleatorio.nextInt(10), alfabeto));
+            }
+            List<String> distintos = new ArrayList<String>(new LinkedHashSet<String>(dicionario));
+            List<String> ordenado = new ArrayList<String>(distintos);
+            Collections.sort(ordenado);
+            DictionaryTrie trie = DictionaryTrie.construir(dicionario);
+            DictionaryTrie trieDePontos = DictionaryTrie.construir(dicionario, Unidade.PONTO_DE_CODIGO);
+            for (int q = 0; q < 5; q++) {
+                String consulta = Textos.comEmojis(aleatorio, aleatorio.nextInt(10), alfabeto);
+                int maxDistancia = aleatorio.nextInt(4);
+                LevenshteinAutomaton automato = new LevenshteinAutomaton(consulta, maxDistancia);
+                assertEquals(Textos.buscar(dicionario, consulta, maxDistancia, distancia),
+                        automato.buscar(dicionario));
+                assertEquals(Textos.buscar(ordenado, consulta, maxDistancia, distancia),
+                        automato.buscar(ordenado));
+                List<Correspondencia> esperadas = Textos.buscar(distintos, consulta, maxDistancia, distancia);
+                assertEquals(esperadas, trie.buscar(automato));
+                assertEquals(esperadas, trieDePontos.buscar(automato));
+                assertEquals(trie.buscar(automato), trie.buscar(consulta, maxDistancia,
+                        new DamerauLevenshtein(1, 1, 1, 1)));
+            }
+        }
+    }
+
+    @Test
+    void reusaOsEstados() {
+        LevenshteinAutomaton automato = new LevenshteinAutomaton("abcdef", 2);
+        Workspace workspace = Workspace.daThreadAtual();
+        DL2 distancia = new DL2();
+        String[] palavras = { "abcdef", "bacdef", "abdcfe", "abcxyz", "fedcba" };
+        for (String palavra : palavras) {
+            automato.distancia(palavra);
+        }
+        int estados = automato.quantidadeDeEstados();
+        for (String palavra : palavras) {
+            int d = distancia.distancia("abcdef", palavra, 2, workspace);
+            assertEquals(d, automato.distancia(palavra));
+        }
+        assertEquals(estados, automato.quantidadeDeEstados());
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.bibiteix.damerau.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+
+class LowerBoundFilterTest {
+
+    @Test
+    void naoRejeitaTermosDentroDoLimite() {
+        Random aleatorio = new Random(7);
+        for (int caso = 0; caso < 200; caso++) {
+            int remocao = 1 + aleatorio.nextInt(3);
+            int insercao = 1 + aleatorio.nextInt(3);
+            int substituicao = 1 + aleatorio.nextInt(4);
+            int troca = Math.max((remocao + insercao + 1) / 2, 1 + aleatorio.nextInt(4));
+            if (caso % 2 == 0) {
+                remocao = insercao = substituicao = troca = 1;
+            }
+            DamerauLevenshtein distancia = new DamerauLevenshtein(remocao, insercao, substituicao, troca,
+                    caso % 5 == 0 ? Unidade.PONTO_DE_CODIGO : Unidade.UTF16);
+            int alfabeto = 2 + aleatorio.nextInt(20);
+            List<String> termos = new ArrayList<String>();
+            for (int i = 0; i < 500; i++) {
+                termos.add(Textos.comEmojis(aleatorio, aleatorio.nextInt(14), alfabeto));
+            }
+            LowerBoundFilter filtro = LowerBoundFilter.construir(termos, distancia);
+            for (int q = 0; q < 5; q++) {
+                String consulta = Textos.comEmojis(aleatorio, aleatorio.nextInt(14), alfabeto);
+                int maxDistancia = aleatorio.nextInt(6);
+                assertEquals(Textos.buscar(termos, consulta, maxDistancia, distancia),
+                        filtro.buscar(consulta, maxDistancia));
+            }
+        }
+    }
+
+    @Test
+    void contaAsRejeicoes() {
+        Random aleatorio = new Random(3);
+        List<String> termos = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            termos.add(Textos.aleatoria(aleatorio, 5 + aleatorio.nextInt(10), 26));
+        }
+        LowerBoundFilter filtro = LowerBoundFilter.construir(termos, new DamerauLevenshtein(1, 1, 1, 1));
+        filtro.buscar("abcdefgh", 1);
+        assertEquals(1000, filtro.getAvaliados());
+        assertTrue(filtro.taxaDeRejeicao() > 0.5);
+        filtro.zerarContadores();
+        assertEquals(0, filtro.getAvaliados());
+        assertEquals(0, filtro.taxaDeRejeicao());
+    }
+
+    @Test
+    void recusaGrafemas() {
+        assertThrows(IllegalArgumentException.class, () -> LowerBoundFilter.construir(
+                Collections.singletonList("a"), new DamerauLevenshtein(1, 1, 1, 1, Unidade.GRAFEMA)));
+    }
+}
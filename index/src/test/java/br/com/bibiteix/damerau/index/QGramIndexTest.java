@@ -0,0 +1,84 @@
+package br.com.bibiteix.damerau.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+
+class QGramIndexTest {
+
+    @Test
+    void concordaComAForcaBruta() {
+        Random aleatorio = new Random(11);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int caso = 0; caso < 40; caso++) {
+                String[] registros = new String[300 + aleatorio.nextInt(300)];
+                for (int i = 0; i < registros.length; i++) {
+                    registros[i] = i > 0 && aleatorio.nextBoolean()
+                            ? Textos.alterada(aleatorio, registros[aleatorio.nextInt(i)], aleatorio.nextInt(4), 8)
+                            : Textos.comEmojis(aleatorio, aleatorio.nextInt(caso % 2 == 0 ? 60 : 10),
+                                    4 + aleatorio.nextInt(10));
+                }
+                int q = 1 + aleatorio.nextInt(4);
+                int maxDistancia = aleatorio.nextInt(4);
+                Unidade unidade = caso % 4 < 2 ? Unidade.PONTO_DE_CODIGO : Unidade.UTF16;
+                CalculadoraDeDistancia calculadora = caso % 3 == 0 ? new DL2(unidade)
+                        : caso % 3 == 1 ? new DamerauLevenshtein(1, 1, 1, 1, unidade)
+                                : new DamerauLevenshtein(1, 2, 2, 2, unidade);
+                QGramIndex indice = QGramIndex.construir(registros, q, unidade);
+
+                Set<String> pares = ConcurrentHashMap.newKeySet();
+                indice.juntar(maxDistancia, calculadora,
+                        (a, b, d) -> assertTrue(pares.add(a + " " + b + " " + d)), pool);
+                assertEquals(Textos.juntar(registros, maxDistancia, calculadora), pares);
+
+                for (int t = 0; t < 10; t++) {
+                    String consulta = aleatorio.nextBoolean()
+                            ? Textos.alterada(aleatorio, registros[aleatorio.nextInt(registros.length)],
+                                    aleatorio.nextInt(3), 8)
+                            : Textos.comEmojis(aleatorio, aleatorio.nextInt(12), 5);
+                    assertEquals(Textos.buscar(Arrays.asList(registros), consulta, maxDistancia, calculadora),
+                            indice.buscar(consulta, maxDistancia, calculadora));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void contaPontosDeCodigo() {
+        String[] registros = { "ab😀", "abc" };
+        QGramIndex indice = QGramIndex.construir(registros, 2, Unidade.PONTO_DE_CODIGO);
+        DamerauLevenshtein distancia = new DamerauLevenshtein(1, 1, 1, 1, Unidade.PONTO_DE_CODIGO);
+        assertEquals(Arrays.asList(new Correspondencia("ab😀", 0), new Correspondencia("abc", 1)),
+                indice.buscar("ab😀", 1, distancia));
+        Set<String> pares = ConcurrentHashMap.newKeySet();
+        indice.juntar(1, distancia, (a, b, d) -> pares.add(a + " " + b + " " + d));
+        assertEquals(Collections.singleton("0 1 1"), pares);
+    }
+
+    @Test
+    void recusaOutraUnidade() {
+        QGramIndex indice = QGramIndex.construir(new String[] { "abc" }, 2);
+        assertThrows(IllegalArgumentException.class, () -> indice.buscar("abc", 1,
+                new DamerauLevenshtein(1, 1, 1, 1, Unidade.PONTO_DE_CODIGO)));
+        assertThrows(IllegalArgumentException.class, () -> QGramIndex.construir(
+                new String[] { "abc" }, 2, Unidade.GRAFEMA));
+    }
+}
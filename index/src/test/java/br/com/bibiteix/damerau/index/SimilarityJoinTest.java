@@ -0,0 +1,65 @@
+package br.com.bibiteix.damerau.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+
+class SimilarityJoinTest {
+
+    @Test
+    void concordaComAForcaBruta() {
+        Random aleatorio = new Random(13);
+        for (int caso = 0; caso < 150; caso++) {
+            int alfabeto = 2 + aleatorio.nextInt(6);
+            String[] registros = new String[100 + aleatorio.nextInt(300)];
+            for (int i = 0; i < registros.length; i++) {
+                registros[i] = i > 0 && aleatorio.nextInt(3) > 0
+                        ? Textos.alterada(aleatorio, registros[aleatorio.nextInt(i)], aleatorio.nextInt(5), alfabeto)
+                        : Textos.comEmojis(aleatorio, aleatorio.nextInt(caso % 2 == 0 ? 40 : 12), alfabeto);
+            }
+            int maxDistancia = aleatorio.nextInt(4);
+            // a junção sem calculadora conta chars UTF-16
+            Unidade unidade = caso % 3 != 1 && caso % 2 == 0 ? Unidade.PONTO_DE_CODIGO : Unidade.UTF16;
+            CalculadoraDeDistancia calculadora = caso % 3 == 0 ? new DL2(unidade)
+                    : caso % 3 == 1 ? new DamerauLevenshtein(1, 1, 1, 1)
+                            : new DamerauLevenshtein(2, 2, 3, 2, unidade);
+
+            Set<String> pares = new HashSet<String>();
+            ConsumidorDePares consumidor = (a, b, d) -> assertTrue(pares.add(a + " " + b + " " + d));
+            if (caso % 3 == 1) {
+                SimilarityJoin.juntar(registros, maxDistancia, consumidor);
+            } else {
+                SimilarityJoin.juntar(registros, maxDistancia, calculadora, consumidor);
+            }
+            assertEquals(Textos.juntar(registros, maxDistancia, calculadora), pares);
+        }
+    }
+
+    @Test
+    void contaPontosDeCodigo() {
+        String[] registros = { "😀bcdef", "xbcdef", "ab😀def", "abcdef", "abcde😀" };
+        CalculadoraDeDistancia calculadora = new DamerauLevenshtein(1, 1, 1, 1, Unidade.PONTO_DE_CODIGO);
+        Set<String> pares = new HashSet<String>();
+        SimilarityJoin.juntar(registros, 1, calculadora,
+                (a, b, d) -> assertTrue(pares.add(a + " " + b + " " + d)));
+        assertEquals(new HashSet<String>(Arrays.asList("0 1 1", "0 3 1", "1 3 1", "2 3 1", "3 4 1")), pares);
+    }
+
+    @Test
+    void recusaGrafemas() {
+        assertThrows(IllegalArgumentException.class, () -> SimilarityJoin.juntar(new String[] { "a" }, 1,
+                new DL2(Unidade.GRAFEMA), (a, b, d) -> { }));
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.bibiteix.damerau.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Unidade;
+
+class SymSpellIndexTest {
+
+    @Test
+    void concordaComAForcaBruta() {
+        Random aleatorio = new Random(23);
+        for (int caso = 0; caso < 120; caso++) {
+            Unidade unidade = caso % 2 == 0 ? Unidade.PONTO_DE_CODIGO : Unidade.UTF16;
+            CalculadoraDeDistancia calculadora = caso % 3 == 0 ? new DL2(unidade)
+                    : caso % 3 == 1 ? new DamerauLevenshtein(1, 1, 1, 1, unidade)
+                            : new DamerauLevenshtein(2, 2, 3, 2, unidade);
+            int alfabeto = 2 + aleatorio.nextInt(6);
+            List<String> termos = new ArrayList<String>();
+            for (int i = 0; i < 200; i++) {
+                termos.add(i > 0 && aleatorio.nextBoolean()
+                        ? Textos.alterada(aleatorio, termos.get(aleatorio.nextInt(i)), aleatorio.nextInt(3),
+                                alfabeto)
+                        : Textos.comEmojis(aleatorio, aleatorio.nextInt(9), alfabeto));
+            }
+            int maxDistancia = aleatorio.nextInt(2 * calculadora.menorCustoDeOperacao() + 1);
+            SymSpellIndex indice = SymSpellIndex.construir(termos, maxDistancia, calculadora);
+            for (int q = 0; q < 5; q++) {
+                String consulta = Textos.comEmojis(aleatorio, aleatorio.nextInt(9), alfabeto);
+                assertEquals(Textos.buscar(new LinkedHashSet<String>(termos), consulta, maxDistancia,
+                        calculadora), indice.buscar(consulta));
+            }
+        }
+    }
+
+    @Test
+    void removePontosDeCodigo() {
+        SymSpellIndex indice = SymSpellIndex.construir(Arrays.asList("ab😀", "abc"), 1,
+                new DamerauLevenshtein(1, 1, 1, 1, Unidade.PONTO_DE_CODIGO));
+        assertEquals(Arrays.asList(new Correspondencia("ab😀", 0), new Correspondencia("abc", 1)),
+                indice.buscar("ab😀"));
+    }
+
+    @Test
+    void recusaGrafemas() {
+        assertThrows(IllegalArgumentException.class, () -> SymSpellIndex.construir(
+                Collections.singletonList("a"), 1, new DL2(Unidade.GRAFEMA)));
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.bibiteix.damerau.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.Correspondencia;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * Random strings for the tests, and the brute-force answers the structures
+ * are compared against.
+ */
+final class Textos {
+
+    private Textos() {
+    }
+
+    /**
+     * A string of the given length over the first letters of the alphabet.
+     */
+    static String aleatoria(Random aleatorio, int tamanho, int alfabeto) {
+        StringBuilder texto = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            texto.append((char) ('a' + aleatorio.nextInt(alfabeto)));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * A string of the given number of code points over the first letters of
+     * the alphabet, where the first letter is replaced by an emoji outside
+     * the BMP.
+     */
+    static String comEmojis(Random aleatorio, int tamanho, int alfabeto) {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < tamanho; i++) {
+            int c = aleatorio.nextInt(alfabeto);
+            texto.append(c == 0 ? "😀" : String.valueOf((char) ('a' + c)));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * The string with up to the given number of random removals, insertions,
+     * substitutions, adjacent swaps and swaps over a removed character.
+     */
+    static String alterada(Random aleatorio, String original, int alteracoes, int alfabeto) {
+        StringBuilder texto = new StringBuilder(original);
+        for (int k = 0; k < alteracoes; k++) {
+            int p = texto.length() == 0 ? 0 : aleatorio.nextInt(texto.length());
+            char novo = (char) ('a' + aleatorio.nextInt(alfabeto));
+            switch (aleatorio.nextInt(5)) {
+            case 0:
+                texto.insert(p, novo);
+                break;
+            case 1:
+                if (texto.length() > 0) {
+                    texto.deleteCharAt(p);
+                }
+                break;
+            case 2:
+                if (texto.length() > 0) {
+                    texto.setCharAt(p, novo);
+                }
+                break;
+            case 3:
+                if (p + 1 < texto.length()) {
+                    char c = texto.charAt(p);
+                    texto.setCharAt(p, texto.charAt(p + 1));
+                    texto.setCharAt(p + 1, c);
+                }
+                break;
+            default:
+                if (p + 2 < texto.length()) {
+                    char primeiro = texto.charAt(p);
+                    char terceiro = texto.charAt(p + 2);
+                    texto.delete(p, p + 3);
+                    texto.insert(p, new char[] { terceiro, primeiro });
+                }
+            }
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Every term within {@code maxDistancia} of the query, closest first.
+     */
+    static List<Correspondencia> buscar(Iterable<String> termos, String consulta, int maxDistancia,
+            CalculadoraDeDistancia calculadora) {
+        Workspace workspace = Workspace.daThreadAtual();
+        List<Correspondencia> resultado = new ArrayList<Correspondencia>();
+        for (String termo : termos) {
+            int d = calculadora.distancia(consulta, termo, maxDistancia, workspace);
+            if (d >= 0) {
+                resultado.add(new Correspondencia(termo, d));
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * Every pair of records within {@code maxDistancia}, as "primeiro segundo
+     * distancia".
+     */
+    static Set<String> juntar(String[] registros, int maxDistancia, CalculadoraDeDistancia calculadora) {
+        Workspace workspace = Workspace.daThreadAtual();
+        Set<String> pares = new HashSet<String>();
+        for (int a = 0; a < registros.length; a++) {
+            for (int b = a + 1; b < registros.length; b++) {
+                int d = calculadora.distancia(registros[a], registros[b], maxDistancia, workspace);
+                if (d >= 0) {
+                    pares.add(a + " " + b + " " + d);
+                }
+            }
+        }
+        return pares;
+    }
+}
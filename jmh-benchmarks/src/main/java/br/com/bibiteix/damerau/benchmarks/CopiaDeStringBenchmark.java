@@ -0,0 +1,76 @@
+package br.com.bibiteix.damerau.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copying a string into the int buffer the kernels read, which the workspace
+ * does once per string and so once per candidate in the one-to-many calls.
+ * <p>
+ * {@code porCharAt} is the loop the workspace runs; {@code porGetChars} is a
+ * bulk copy through a char scratch buffer, which for a Latin-1 string, stored
+ * by the JVM as compact bytes, widens all bytes at once. On Temurin 17 both
+ * take the same time within the error, for Latin-1 and UTF-16 alike: C2 hoists
+ * the coder check out of the {@code charAt} loop, so the workspace keeps the
+ * loop, which needs no extra buffer. Rerun this before revisiting that choice.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopiaDeStringBenchmark {
+
+    @Param({ "8", "64", "1024" })
+    public int tamanho;
+
+    @Param({ "LATIN1", "UTF16" })
+    public String codificacao;
+
+    private String string;
+    private char[] caracteres;
+    private int[] destino;
+
+    @Setup
+    public void preparar() {
+        Random aleatorio = new Random(tamanho);
+        char primeiro = "LATIN1".equals(codificacao) ? 'a' : '一';
+        StringBuilder sorteada = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            sorteada.append((char) (primeiro + aleatorio.nextInt(26)));
+        }
+        string = sorteada.toString();
+        caracteres = new char[tamanho];
+        destino = new int[tamanho];
+    }
+
+    @Benchmark
+    public int[] porCharAt() {
+        for (int i = 0; i < tamanho; i++) {
+            destino[i] = string.charAt(i);
+        }
+        return destino;
+    }
+
+    @Benchmark
+    public int[] porGetChars() {
+        string.getChars(0, tamanho, caracteres, 0);
+        for (int i = 0; i < tamanho; i++) {
+            destino[i] = caracteres[i];
+        }
+        return destino;
+    }
+}
@@ -0,0 +1,175 @@
+package br.com.bibiteix.damerau.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.bibiteix.damerau.CalculadoraDeDistancia;
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * One distance between two strings, across the regimes the kernels treat
+ * differently: string length, alphabet size, how similar the strings are and
+ * which calculator and costs are used.
+ * <p>
+ * Every parameter combination gets its own pair, generated from a fixed seed,
+ * so results are comparable from run to run. Reports throughput and average
+ * time; add {@code -prof gc} for the allocation rate, which should stay at
+ * zero once the workspace has grown. The whole grid is long to run, so narrow
+ * it with {@code -p}, for instance:
+ *
+ * <pre>
+ * java -jar jmh-benchmarks/target/benchmarks.jar DistanciaBenchmark -prof gc \
+ *     -p tamanho=64,1024 -p alfabeto=INGLES
+ * </pre>
+ *
+ * The committed baseline lives in {@code jmh-benchmarks/baseline}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class DistanciaBenchmark {
+
+    /**
+     * The characters the strings are drawn from.
+     */
+    public enum Alfabeto {
+        DNA("ACGT"),
+        INGLES("abcdefghijklmnopqrstuvwxyz"),
+        // os 2000 primeiros ideogramas unificados
+        CJK(ideogramas(0x4E00, 2000));
+
+        private final String caracteres;
+
+        Alfabeto(String caracteres) {
+            this.caracteres = caracteres;
+        }
+
+        char sortear(Random aleatorio) {
+            return caracteres.charAt(aleatorio.nextInt(caracteres.length()));
+        }
+
+        private static String ideogramas(int primeiro, int quantidade) {
+            StringBuilder ideogramas = new StringBuilder(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                ideogramas.append((char) (primeiro + i));
+            }
+            return ideogramas.toString();
+        }
+    }
+
+    /**
+     * How the second string is derived from the first.
+     */
+    public enum Similaridade {
+        IDENTICAS,
+        // uma edição a cada 20 caracteres, contando trocas de vizinhos
+        QUASE_IGUAIS,
+        ALEATORIAS
+    }
+
+    /**
+     * The calculator and its costs.
+     */
+    public enum Custos {
+        DL2,
+        UNITARIOS,
+        // substituição mais cara que a troca, que desliga o caminho de custos unitários
+        COM_PESOS
+    }
+
+    @Param({ "4", "16", "64", "256", "1024", "4096", "50000" })
+    public int tamanho;
+
+    @Param
+    public Alfabeto alfabeto;
+
+    @Param
+    public Similaridade similaridade;
+
+    @Param
+    public Custos custos;
+
+    private String primeira;
+    private String segunda;
+    private CalculadoraDeDistancia calculadora;
+    private final Workspace workspace = new Workspace();
+
+    @Setup
+    public void preparar() {
+        Random aleatorio = new Random(tamanho * 31L + alfabeto.ordinal() * 7L + similaridade.ordinal());
+        primeira = sortear(aleatorio, tamanho);
+        switch (similaridade) {
+        case IDENTICAS:
+            segunda = new String(primeira.toCharArray());
+            break;
+        case QUASE_IGUAIS:
+            segunda = editar(aleatorio, primeira, Math.max(1, tamanho / 20));
+            break;
+        default:
+            segunda = sortear(aleatorio, tamanho);
+        }
+        switch (custos) {
+        case DL2:
+            calculadora = new DL2();
+            break;
+        case UNITARIOS:
+            calculadora = new DamerauLevenshtein(1, 1, 1, 1);
+            break;
+        default:
+            calculadora = new DamerauLevenshtein(1, 1, 2, 1);
+        }
+    }
+
+    @Benchmark
+    public int distancia() {
+        return calculadora.distancia(primeira, segunda, workspace);
+    }
+
+    private String sortear(Random aleatorio, int tamanho) {
+        StringBuilder sorteada = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            sorteada.append(alfabeto.sortear(aleatorio));
+        }
+        return sorteada.toString();
+    }
+
+    private String editar(Random aleatorio, String original, int edicoes) {
+        StringBuilder editada = new StringBuilder(original);
+        for (int e = 0; e < edicoes && editada.length() > 1; e++) {
+            int posicao = aleatorio.nextInt(editada.length() - 1);
+            switch (aleatorio.nextInt(4)) {
+            case 0:
+                editada.insert(posicao, alfabeto.sortear(aleatorio));
+                break;
+            case 1:
+                editada.deleteCharAt(posicao);
+                break;
+            case 2:
+                editada.setCharAt(posicao, alfabeto.sortear(aleatorio));
+                break;
+            default:
+                char caracter = editada.charAt(posicao);
+                editada.setCharAt(posicao, editada.charAt(posicao + 1));
+                editada.setCharAt(posicao + 1, caracter);
+            }
+        }
+        return editada.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package br.com.bibiteix.damerau.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import br.com.bibiteix.damerau.DL2;
+import br.com.bibiteix.damerau.Workspace;
+import br.com.bibiteix.damerau.index.SymSpellIndex;
+
+/**
+ * Compares {@link SymSpellIndex} with a linear scan of the dictionary using the
+ * bounded distance: build time, index footprint and lookups per second.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar br.com.bibiteix.damerau.benchmarks.SymSpellBenchmark
+ * [terms] [queries] [maxDistancia]}.
+ * The dictionary is made of distinct random lowercase words and every query
+ * is a dictionary word with up to two random edits.
+ */
+public class SymSpellBenchmark {
+
+    public static void main(String[] args) {
+        int quantidadeDeTermos = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int quantidadeDeConsultas = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int maxDistancia = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        Random aleatorio = new Random(42);
+        Set<String> distintos = new LinkedHashSet<String>();
+        while (distintos.size() < quantidadeDeTermos) {
+            distintos.add(palavra(aleatorio, 4 + aleatorio.nextInt(8)));
+        }
+        List<String> termos = new ArrayList<String>(distintos);
+        String[] consultas = new String[quantidadeDeConsultas];
+        for (int i = 0; i < quantidadeDeConsultas; i++) {
+            consultas[i] = editar(aleatorio, termos.get(aleatorio.nextInt(termos.size())),
+                    aleatorio.nextInt(3));
+        }
+        DL2 distancia = new DL2();
+
+        long inicio = System.nanoTime();
+        SymSpellIndex indice = SymSpellIndex.construir(termos, maxDistancia, distancia);
+        long construcao = System.nanoTime() - inicio;
+        System.out.printf("build: %d ms, index: %.1f MB for %d terms%n", construcao / 1000000,
+                indice.bytesOcupados() / (1024.0 * 1024.0), indice.tamanho());
+
+        long encontrados = 0;
+        inicio = System.nanoTime();
+        for (String consulta : consultas) {
+            encontrados += indice.buscar(consulta).size();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("symspell: %.0f queries/s (%d matches)%n", consultas.length / segundos,
+                encontrados);
+
+        encontrados = 0;
+        Workspace workspace = Workspace.daThreadAtual();
+        inicio = System.nanoTime();
+        for (String consulta : consultas) {
+            for (String termo : termos) {
+                if (distancia.calcularDistancia(consulta, termo, maxDistancia, workspace) >= 0) {
+                    encontrados++;
+                }
+            }
+        }
+        segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("linear scan: %.0f queries/s (%d matches)%n", consultas.length / segundos,
+                encontrados);
+    }
+
+    private static String palavra(Random aleatorio, int tamanho) {
+        StringBuilder palavra = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            palavra.append((char) ('a' + aleatorio.nextInt(26)));
+        }
+        return palavra.toString();
+    }
+
+    private static String editar(Random aleatorio, String termo, int edicoes) {
+        StringBuilder editado = new StringBuilder(termo);
+        for (int e = 0; e < edicoes && editado.length() > 1; e++) {
+            int posicao = aleatorio.nextInt(editado.length() - 1);
+            switch (aleatorio.nextInt(4)) {
+            case 0:
+                editado.insert(posicao, (char) ('a' + aleatorio.nextInt(26)));
+                break;
+            case 1:
+                editado.deleteCharAt(posicao);
+                break;
+            case 2:
+                editado.setCharAt(posicao, (char) ('a' + aleatorio.nextInt(26)));
+                break;
+            default:
+                char caracter = editado.charAt(posicao);
+                editado.setCharAt(posicao, editado.charAt(posicao + 1));
+                editado.setCharAt(posicao + 1, caracter);
+            }
+        }
+        return editado.toString();
+    }
+}
@@ -0,0 +1,198 @@
+package br.com.bibiteix.damerau.simd;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * The weighted {@link DamerauLevenshtein} recurrence from one query to many
+ * candidates, one candidate per vector lane, in the way SWIPE stripes database
+ * sequences across lanes.
+ * <p>
+ * Every lane walks the same cells of its own matrix in the same order, so the
+ * deletion, insertion and substitution terms are plain vector loads from a
+ * matrix that interleaves the lanes cell by cell. The swap term needs, for
+ * each lane, the last row before the current one holding the character of the
+ * lane's column, kept in a vector per column and updated row after row, and
+ * the last column before the current one holding the character of the row,
+ * kept in a vector updated as the row is walked. Only the cell the swap starts
+ * from is read lane by lane, and only when the deletions and insertions
+ * between the two occurrences still leave room for the swap to pay off.
+ * <p>
+ * Candidates are sorted by length and taken {@link #LARGURA} at a time, so a
+ * group only pays for the columns of its longest candidate, which is rarely
+ * longer than the others. Memory grows with the product of the lengths, so
+ * only queries and candidates up to {@value #MAIOR_TAMANHO} characters are
+ * computed here.
+ */
+final class CandidatosVetoriais {
+
+    private static final VectorSpecies<Integer> ESPECIE = IntVector.SPECIES_PREFERRED;
+    private static final int LARGURA = ESPECIE.length();
+
+    static final int MAIOR_TAMANHO = 64;
+    static final int MENOR_QUANTIDADE = LARGURA;
+
+    private CandidatosVetoriais() {
+    }
+
+    static void calcularDistancias(int[] consulta, int tamanhoConsulta, List<String> candidatos,
+            int[] resultado, int custoRemocao, int custoInsercao, int custoSubstituicao, int custoTroca,
+            Workspace workspace) {
+        // ordena por tamanho os candidatos tratados aqui, com uma contagem por tamanho
+        Rascunho rascunho = workspace.rascunho(Rascunho.class, Rascunho::new);
+        int quantidade = candidatos.size();
+        int[] inicioDoTamanho = rascunho.inicioDoTamanho;
+        Arrays.fill(inicioDoTamanho, 0, MAIOR_TAMANHO + 2, 0);
+        for (int c = 0; c < quantidade; c++) {
+            int tamanho = candidatos.get(c).length();
+            if (tamanho == 0 || tamanho > MAIOR_TAMANHO) {
+                resultado[c] = -1;
+            } else {
+                inicioDoTamanho[tamanho + 1]++;
+            }
+        }
+        for (int t = 1; t <= MAIOR_TAMANHO + 1; t++) {
+            inicioDoTamanho[t] += inicioDoTamanho[t - 1];
+        }
+        int tratados = inicioDoTamanho[MAIOR_TAMANHO + 1];
+        int[] ordem = rascunho.ordem = Workspace.comEspaco(rascunho.ordem, tratados);
+        for (int c = 0; c < quantidade; c++) {
+            int tamanho = candidatos.get(c).length();
+            if (tamanho != 0 && tamanho <= MAIOR_TAMANHO) {
+                ordem[inicioDoTamanho[tamanho]++] = c;
+            }
+        }
+
+        int[] caracteres = rascunho.caracteres;
+        int[] ultimaLinha = rascunho.ultimaLinha;
+        int[] matriz = rascunho.matriz = Workspace.comEspaco(rascunho.matriz,
+                tamanhoConsulta * MAIOR_TAMANHO * LARGURA);
+        int[] indices = rascunho.indices;
+        for (int inicio = 0; inicio < tratados; inicio += LARGURA) {
+            int fim = Math.min(inicio + LARGURA, tratados);
+            int colunas = candidatos.get(ordem[fim - 1]).length();
+            // a coluna j da faixa l fica em j * LARGURA + l; -1 não é igual a nenhum caracter
+            Arrays.fill(caracteres, 0, colunas * LARGURA, -1);
+            for (int l = 0; l < fim - inicio; l++) {
+                String candidato = candidatos.get(ordem[inicio + l]);
+                for (int j = 0; j < candidato.length(); j++) {
+                    caracteres[j * LARGURA + l] = candidato.charAt(j);
+                }
+            }
+            calcularGrupo(consulta, tamanhoConsulta, colunas, caracteres, ultimaLinha, matriz,
+                    custoRemocao, custoInsercao, custoSubstituicao, custoTroca, indices);
+            int ultima = (tamanhoConsulta - 1) * colunas;
+            for (int l = 0; l < fim - inicio; l++) {
+                int c = ordem[inicio + l];
+                int tamanho = candidatos.get(c).length();
+                resultado[c] = matriz[(ultima + tamanho - 1) * LARGURA + l];
+            }
+        }
+    }
+
+    /**
+     * Fills the interleaved matrix of one group; the cell (i, j) of lane l is
+     * at {@code (i * colunas + j) * LARGURA + l}. The columns past the end of
+     * a shorter candidate only feed other such columns.
+     */
+    private static void calcularGrupo(int[] consulta, int tamanhoConsulta, int colunas, int[] caracteres,
+            int[] ultimaLinha, int[] matriz, int custoRemocao, int custoInsercao, int custoSubstituicao,
+            int custoTroca, int[] indices) {
+        IntVector faixas = IntVector.zero(ESPECIE).addIndex(1);
+        IntVector semTroca = IntVector.broadcast(ESPECIE, Integer.MAX_VALUE);
+
+        // linha 0
+        int primeiro = consulta[0];
+        IntVector caracteresDaColuna = IntVector.fromArray(ESPECIE, caracteres, 0);
+        // ultimaLinha[j * LARGURA + l]: última linha antes da atual com o caracter da coluna j, ou -1
+        IntVector semLinha = IntVector.broadcast(ESPECIE, -1);
+        IntVector.broadcast(ESPECIE, Math.min(custoSubstituicao, custoRemocao + custoInsercao))
+                .blend(0, caracteresDaColuna.compare(VectorOperators.EQ, primeiro))
+                .intoArray(matriz, 0);
+        for (int j = 1; j < colunas; j++) {
+            caracteresDaColuna = IntVector.fromArray(ESPECIE, caracteres, j * LARGURA);
+            IntVector distancia = IntVector.fromArray(ESPECIE, matriz, (j - 1) * LARGURA).add(custoInsercao);
+            distancia = distancia.min((j + 1) * custoInsercao + custoRemocao);
+            IntVector substituicao = IntVector.broadcast(ESPECIE, j * custoInsercao)
+                    .add(custoSubstituicao, caracteresDaColuna.compare(VectorOperators.NE, primeiro));
+            distancia.min(substituicao).intoArray(matriz, j * LARGURA);
+            semLinha.blend(0, caracteresDaColuna.compare(VectorOperators.EQ, primeiro))
+                    .intoArray(ultimaLinha, j * LARGURA);
+        }
+
+        IntVector caracteresDaPrimeiraColuna = IntVector.fromArray(ESPECIE, caracteres, 0);
+        for (int i = 1; i < tamanhoConsulta; i++) {
+            int caracterDaLinha = consulta[i];
+            int linha = i * colunas * LARGURA;
+            int linhaAnterior = (i - 1) * colunas * LARGURA;
+            // coluna 0
+            VectorMask<Integer> iguais = caracteresDaPrimeiraColuna.compare(VectorOperators.EQ, caracterDaLinha);
+            IntVector distancia = IntVector.fromArray(ESPECIE, matriz, linhaAnterior).add(custoRemocao);
+            distancia = distancia.min((i + 1) * custoRemocao + custoInsercao);
+            distancia = distancia.min(IntVector.broadcast(ESPECIE, i * custoRemocao)
+                    .add(custoSubstituicao, iguais.not()));
+            distancia.intoArray(matriz, linha);
+            // última coluna antes de j com o caracter desta linha, em cada faixa
+            IntVector jTrocas = IntVector.broadcast(ESPECIE, -1).blend(0, iguais);
+
+            for (int j = 1; j < colunas; j++) {
+                int celula = j * LARGURA;
+                caracteresDaColuna = IntVector.fromArray(ESPECIE, caracteres, celula);
+                iguais = caracteresDaColuna.compare(VectorOperators.EQ, caracterDaLinha);
+                distancia = IntVector.fromArray(ESPECIE, matriz, linhaAnterior + celula).add(custoRemocao);
+                distancia = distancia.min(IntVector.fromArray(ESPECIE, matriz, linha + celula - LARGURA)
+                        .add(custoInsercao));
+                distancia = distancia.min(IntVector.fromArray(ESPECIE, matriz, linhaAnterior + celula - LARGURA)
+                        .add(custoSubstituicao, iguais.not()));
+
+                IntVector iTroca = IntVector.fromArray(ESPECIE, ultimaLinha, celula);
+                IntVector jTroca = jTrocas;
+                VectorMask<Integer> trocaPossivel = iTroca.compare(VectorOperators.GE, 0)
+                        .and(jTroca.compare(VectorOperators.GE, 0));
+                // a troca não melhora a célula se as remoções e inserções entre as ocorrências já custam mais
+                IntVector custoDoIntervalo = iTroca.neg().add(i - 1).mul(custoRemocao)
+                        .add(jTroca.neg().add(j - 1).mul(custoInsercao))
+                        .add(custoTroca);
+                trocaPossivel = trocaPossivel.and(custoDoIntervalo.compare(VectorOperators.LT, distancia));
+                if (trocaPossivel.anyTrue()) {
+                    IntVector linhaAntes = iTroca.sub(1).max(0);
+                    IntVector colunaAntes = jTroca.sub(1).max(0);
+                    linhaAntes.mul(colunas).add(colunaAntes).mul(LARGURA).add(faixas).intoArray(indices, 0);
+                    // leitura escalar: o gather do JDK 17 pode ser reordenado com as escritas na matriz
+                    for (int l = 0; l < LARGURA; l++) {
+                        indices[l] = matriz[indices[l]];
+                    }
+                    VectorMask<Integer> naOrigem = iTroca.compare(VectorOperators.EQ, 0)
+                            .and(jTroca.compare(VectorOperators.EQ, 0));
+                    IntVector troca = IntVector.fromArray(ESPECIE, indices, 0).blend(0, naOrigem)
+                            .add(custoDoIntervalo);
+                    distancia = distancia.min(semTroca.blend(troca, trocaPossivel));
+                }
+                distancia.intoArray(matriz, linha + celula);
+                iTroca.blend(i, iguais).intoArray(ultimaLinha, celula);
+                jTrocas = jTrocas.blend(j, iguais);
+            }
+        }
+    }
+
+    /**
+     * The buffers kept in the workspace between calls.
+     */
+    private static final class Rascunho {
+
+        final int[] inicioDoTamanho = new int[MAIOR_TAMANHO + 2];
+        final int[] caracteres = new int[MAIOR_TAMANHO * LARGURA];
+        final int[] ultimaLinha = new int[MAIOR_TAMANHO * LARGURA];
+        final int[] indices = new int[LARGURA];
+        int[] ordem = new int[0];
+        int[] matriz = new int[0];
+    }
+}
@@ -0,0 +1,271 @@
+package br.com.bibiteix.damerau.simd;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.KernelVetorial;
+import br.com.bibiteix.damerau.Workspace;
+
+/**
+ * The weighted {@link DamerauLevenshtein} recurrence computed one anti-diagonal
+ * at a time with the vector API.
+ * <p>
+ * Cells on the same anti-diagonal do not depend on each other, so a whole
+ * vector of them is computed at once from the two previous anti-diagonals. The
+ * matrix is stored skewed, anti-diagonal by anti-diagonal, each one indexed by
+ * the row, which makes the deletion, insertion and substitution terms plain
+ * vector loads; the second sequence is read reversed for the same reason. The
+ * swap term reads a cell chosen by the last occurrence of each character, so
+ * the last row and column where every shared character occurs are tabulated
+ * beforehand and the cells are fetched with gathers.
+ * <p>
+ * Memory is quadratic, so {@link #compensa} only accepts sequences whose
+ * skewed matrix stays within {@value #MAIOR_MATRIZ} cells.
+ * <p>
+ * One-to-many calls are handed to {@link CandidatosVetoriais}, which puts a
+ * different candidate in each lane instead.
+ */
+public final class DiagonalVetorial implements KernelVetorial {
+
+    private static final VectorSpecies<Integer> ESPECIE = IntVector.SPECIES_PREFERRED;
+    private static final int LARGURA = ESPECIE.length();
+
+    static final int MAIOR_MATRIZ = 1 << 22;
+    static final int MENOR_TAMANHO = 4 * LARGURA;
+
+    @Override
+    public boolean compensa(int tamanhoPrimeira, int tamanhoSegunda) {
+        return tamanhoPrimeira >= MENOR_TAMANHO && tamanhoSegunda >= MENOR_TAMANHO
+                && (long) (tamanhoPrimeira + tamanhoSegunda) * tamanhoPrimeira <= MAIOR_MATRIZ;
+    }
+
+    @Override
+    public int calcularDistancia(int[] primeira, int tamanhoPrimeira, int[] segunda, int tamanhoSegunda,
+            int custoRemocao, int custoInsercao, int custoSubstituicao, int custoTroca,
+            Workspace workspace) {
+        Rascunho rascunho = workspace.rascunho(Rascunho.class, Rascunho::new);
+        // classes a partir de 1 para os caracteres presentes nas duas sequências; 0 para os demais
+        int quantidadeDeComuns = caracteresComuns(primeira, tamanhoPrimeira, segunda, tamanhoSegunda,
+                rascunho);
+        int[] comuns = rascunho.comuns;
+        int quantidadeDeClasses = quantidadeDeComuns + 1;
+        int[] classesDaPrimeira = rascunho.classesDaPrimeira = Workspace.comEspaco(rascunho.classesDaPrimeira,
+                tamanhoPrimeira + LARGURA);
+        // cópia com folga de um vetor depois do fim, para as leituras da última volta
+        int[] primeiraComFolga = rascunho.primeiraComFolga = Workspace.comEspaco(rascunho.primeiraComFolga,
+                tamanhoPrimeira + LARGURA);
+        System.arraycopy(primeira, 0, primeiraComFolga, 0, tamanhoPrimeira);
+        for (int i = 0; i < tamanhoPrimeira; i++) {
+            classesDaPrimeira[i] = classe(comuns, quantidadeDeComuns, primeira[i]);
+        }
+        // a folga é lida pelas linhas de lixo da última volta e precisa de classes válidas
+        Arrays.fill(classesDaPrimeira, tamanhoPrimeira, tamanhoPrimeira + LARGURA, 0);
+        int[] classesDaSegunda = rascunho.classesDaSegunda = Workspace.comEspaco(rascunho.classesDaSegunda,
+                tamanhoSegunda + LARGURA);
+        int[] segundaInvertida = rascunho.segundaInvertida = Workspace.comEspaco(rascunho.segundaInvertida,
+                tamanhoSegunda + LARGURA);
+        for (int j = 0; j < tamanhoSegunda; j++) {
+            classesDaSegunda[tamanhoSegunda - 1 - j] = classe(comuns, quantidadeDeComuns, segunda[j]);
+            segundaInvertida[tamanhoSegunda - 1 - j] = segunda[j];
+        }
+        Arrays.fill(classesDaSegunda, tamanhoSegunda, tamanhoSegunda + LARGURA, 0);
+
+        // ultimaLinha[i * classes + c]: última linha antes de i com a classe c, ou -1
+        int[] ultimaLinha = rascunho.ultimaLinha = Workspace.comEspaco(rascunho.ultimaLinha,
+                tamanhoPrimeira * quantidadeDeClasses);
+        Arrays.fill(ultimaLinha, 0, quantidadeDeClasses, -1);
+        for (int i = 1; i < tamanhoPrimeira; i++) {
+            System.arraycopy(ultimaLinha, (i - 1) * quantidadeDeClasses, ultimaLinha,
+                    i * quantidadeDeClasses, quantidadeDeClasses);
+            if (classesDaPrimeira[i - 1] != 0) {
+                ultimaLinha[i * quantidadeDeClasses + classesDaPrimeira[i - 1]] = i - 1;
+            }
+        }
+        // ultimaColuna[j * classes + c]: última coluna antes de j com a classe c, ou -1
+        int[] ultimaColuna = rascunho.ultimaColuna = Workspace.comEspaco(rascunho.ultimaColuna,
+                tamanhoSegunda * quantidadeDeClasses);
+        Arrays.fill(ultimaColuna, 0, quantidadeDeClasses, -1);
+        for (int j = 1; j < tamanhoSegunda; j++) {
+            System.arraycopy(ultimaColuna, (j - 1) * quantidadeDeClasses, ultimaColuna,
+                    j * quantidadeDeClasses, quantidadeDeClasses);
+            int classe = classesDaSegunda[tamanhoSegunda - j];
+            if (classe != 0) {
+                ultimaColuna[j * quantidadeDeClasses + classe] = j - 1;
+            }
+        }
+
+        int diagonais = tamanhoPrimeira + tamanhoSegunda - 1;
+        int[] matriz = rascunho.matriz = Workspace.comEspaco(rascunho.matriz,
+                diagonais * tamanhoPrimeira + LARGURA);
+        // um buffer de índices por gather: o C2 do JDK 17 pode antecipar a escrita dos índices
+        // de um gather para antes da leitura feita pelo anterior
+        int[] indicesDaLinha = rascunho.indicesDaLinha;
+        int[] indicesDaColuna = rascunho.indicesDaColuna;
+        int[] indices = rascunho.indices;
+        IntVector iota = IntVector.zero(ESPECIE).addIndex(1);
+        IntVector semTroca = IntVector.broadcast(ESPECIE, Integer.MAX_VALUE);
+
+        for (int d = 0; d < diagonais; d++) {
+            int primeiraLinha = Math.max(0, d - tamanhoSegunda + 1);
+            int ultimaLinhaDaDiagonal = Math.min(d, tamanhoPrimeira - 1);
+            int base = d * tamanhoPrimeira;
+            // linha 0 e coluna 0 seguem as regras próprias da recorrência
+            if (primeiraLinha == 0) {
+                int j = d;
+                int caracter = segundaInvertida[tamanhoSegunda - 1 - j];
+                if (j == 0) {
+                    matriz[base] = primeira[0] == caracter ? 0
+                            : Math.min(custoSubstituicao, custoRemocao + custoInsercao);
+                } else {
+                    int distanciaRemocao = (j + 1) * custoInsercao + custoRemocao;
+                    int distanciaInsercao = matriz[(d - 1) * tamanhoPrimeira] + custoInsercao;
+                    int distanciaSubstituicao = j * custoInsercao
+                            + (primeira[0] == caracter ? 0 : custoSubstituicao);
+                    matriz[base] = Math.min(Math.min(distanciaRemocao, distanciaInsercao),
+                            distanciaSubstituicao);
+                }
+            }
+            int inicio = Math.max(primeiraLinha, 1);
+            int fim = Math.min(ultimaLinhaDaDiagonal, d - 1);
+            int anterior = (d - 1) * tamanhoPrimeira;
+            int anteriorDaAnterior = (d - 2) * tamanhoPrimeira;
+            int deslocamentoDaSegunda = tamanhoSegunda - 1 - d;
+            // as voltas não usam máscaras: as linhas além de fim recebem lixo, que só é lido por
+            // outras linhas de lixo, e a coluna 0 só é calculada depois delas
+            for (int i = inicio; i <= fim; i += LARGURA) {
+                IntVector linhas = iota.add(i);
+                IntVector colunas = linhas.neg().add(d);
+
+                IntVector distancia = IntVector.fromArray(ESPECIE, matriz, anterior + i - 1).add(custoRemocao);
+                distancia = distancia.min(IntVector.fromArray(ESPECIE, matriz, anterior + i).add(custoInsercao));
+                IntVector caracteres = IntVector.fromArray(ESPECIE, primeiraComFolga, i);
+                IntVector caracteresDaSegunda = IntVector.fromArray(ESPECIE, segundaInvertida,
+                        deslocamentoDaSegunda + i);
+                IntVector substituicao = IntVector.fromArray(ESPECIE, matriz, anteriorDaAnterior + i - 1);
+                substituicao = substituicao.add(custoSubstituicao,
+                        caracteres.compare(VectorOperators.NE, caracteresDaSegunda));
+                distancia = distancia.min(substituicao);
+
+                // troca: última linha antes de i com o caracter da coluna, última coluna antes de j com o da linha
+                IntVector classesDasColunas = IntVector.fromArray(ESPECIE, classesDaSegunda,
+                        deslocamentoDaSegunda + i);
+                linhas.min(tamanhoPrimeira - 1).mul(quantidadeDeClasses).add(classesDasColunas)
+                        .intoArray(indicesDaLinha, 0);
+                IntVector iTroca = IntVector.fromArray(ESPECIE, ultimaLinha, 0, indicesDaLinha, 0);
+                IntVector classesDasLinhas = IntVector.fromArray(ESPECIE, classesDaPrimeira, i);
+                colunas.max(0).mul(quantidadeDeClasses).add(classesDasLinhas).intoArray(indicesDaColuna, 0);
+                IntVector jTroca = IntVector.fromArray(ESPECIE, ultimaColuna, 0, indicesDaColuna, 0);
+                VectorMask<Integer> trocaPossivel = iTroca.compare(VectorOperators.GE, 0)
+                        .and(jTroca.compare(VectorOperators.GE, 0));
+                if (trocaPossivel.anyTrue()) {
+                    IntVector linhaAntes = iTroca.sub(1).max(0);
+                    IntVector colunaAntes = jTroca.sub(1).max(0);
+                    linhaAntes.add(colunaAntes).mul(tamanhoPrimeira).add(linhaAntes).intoArray(indices, 0);
+                    // com máscara: o gather sem máscara na matriz sai errado no C2 do JDK 17 conforme
+                    // o código em volta, depois do aquecimento
+                    IntVector custoAntesDaTroca = IntVector.fromArray(ESPECIE, matriz, 0, indices, 0,
+                            trocaPossivel);
+                    VectorMask<Integer> naOrigem = iTroca.compare(VectorOperators.EQ, 0)
+                            .and(jTroca.compare(VectorOperators.EQ, 0));
+                    IntVector troca = custoAntesDaTroca.blend(0, naOrigem)
+                            .add(linhas.sub(iTroca).sub(1).mul(custoRemocao))
+                            .add(colunas.sub(jTroca).sub(1).mul(custoInsercao))
+                            .add(custoTroca);
+                    distancia = distancia.min(semTroca.blend(troca, trocaPossivel));
+                }
+                distancia.intoArray(matriz, base + i);
+            }
+            if (ultimaLinhaDaDiagonal == d && d > 0) {
+                int i = d;
+                int distanciaRemocao = matriz[(d - 1) * tamanhoPrimeira + i - 1] + custoRemocao;
+                int distanciaInsercao = (i + 1) * custoRemocao + custoInsercao;
+                int distanciaSubstituicao = i * custoRemocao
+                        + (primeira[i] == segundaInvertida[tamanhoSegunda - 1] ? 0 : custoSubstituicao);
+                matriz[base + i] = Math.min(Math.min(distanciaRemocao, distanciaInsercao),
+                        distanciaSubstituicao);
+            }
+        }
+        return matriz[(diagonais - 1) * tamanhoPrimeira + tamanhoPrimeira - 1];
+    }
+
+    /**
+     * Stores the distinct characters found in both sequences, in increasing
+     * order, at the start of {@link Rascunho#comuns}.
+     * @return how many there are
+     */
+    private static int caracteresComuns(int[] primeira, int tamanhoPrimeira, int[] segunda,
+            int tamanhoSegunda, Rascunho rascunho) {
+        int[] primeiraOrdenada = rascunho.primeiraOrdenada = Workspace.comEspaco(rascunho.primeiraOrdenada,
+                tamanhoPrimeira);
+        System.arraycopy(primeira, 0, primeiraOrdenada, 0, tamanhoPrimeira);
+        Arrays.sort(primeiraOrdenada, 0, tamanhoPrimeira);
+        int[] segundaOrdenada = rascunho.segundaOrdenada = Workspace.comEspaco(rascunho.segundaOrdenada,
+                tamanhoSegunda);
+        System.arraycopy(segunda, 0, segundaOrdenada, 0, tamanhoSegunda);
+        Arrays.sort(segundaOrdenada, 0, tamanhoSegunda);
+        int[] comuns = rascunho.comuns = Workspace.comEspaco(rascunho.comuns,
+                Math.min(tamanhoPrimeira, tamanhoSegunda));
+        int quantidade = 0;
+        int i = 0;
+        int j = 0;
+        while (i < tamanhoPrimeira && j < tamanhoSegunda) {
+            if (primeiraOrdenada[i] < segundaOrdenada[j]) {
+                i++;
+            } else if (primeiraOrdenada[i] > segundaOrdenada[j]) {
+                j++;
+            } else {
+                if (quantidade == 0 || comuns[quantidade - 1] != primeiraOrdenada[i]) {
+                    comuns[quantidade++] = primeiraOrdenada[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return quantidade;
+    }
+
+    private static int classe(int[] comuns, int quantidadeDeComuns, int caracter) {
+        int posicao = Arrays.binarySearch(comuns, 0, quantidadeDeComuns, caracter);
+        return posicao >= 0 ? posicao + 1 : 0;
+    }
+
+    @Override
+    public boolean compensaEmLote(int tamanhoConsulta, int quantidadeDeCandidatos) {
+        return tamanhoConsulta > 0 && tamanhoConsulta <= CandidatosVetoriais.MAIOR_TAMANHO
+                && quantidadeDeCandidatos >= CandidatosVetoriais.MENOR_QUANTIDADE;
+    }
+
+    @Override
+    public void calcularDistancias(int[] consulta, int tamanhoConsulta, List<String> candidatos,
+            int[] resultado, int custoRemocao, int custoInsercao, int custoSubstituicao, int custoTroca,
+            Workspace workspace) {
+        CandidatosVetoriais.calcularDistancias(consulta, tamanhoConsulta, candidatos, resultado,
+                custoRemocao, custoInsercao, custoSubstituicao, custoTroca, workspace);
+    }
+
+    /**
+     * The buffers kept in the workspace between calls.
+     */
+    private static final class Rascunho {
+
+        int[] matriz = new int[0];
+        int[] primeiraComFolga = new int[0];
+        int[] classesDaPrimeira = new int[0];
+        int[] classesDaSegunda = new int[0];
+        int[] segundaInvertida = new int[0];
+        int[] ultimaLinha = new int[0];
+        int[] ultimaColuna = new int[0];
+        int[] primeiraOrdenada = new int[0];
+        int[] segundaOrdenada = new int[0];
+        int[] comuns = new int[0];
+        final int[] indicesDaLinha = new int[LARGURA];
+        final int[] indicesDaColuna = new int[LARGURA];
+        final int[] indices = new int[LARGURA];
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.bibiteix.damerau.simd;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.bibiteix.damerau.DamerauLevenshtein;
+import br.com.bibiteix.damerau.KernelVetorial;
+import br.com.bibiteix.damerau.Workspace;
+
+class DiagonalVetorialTest {
+
+    @Test
+    void eCarregadoPeloCore() {
+        assertTrue(KernelVetorial.DISPONIVEL instanceof DiagonalVetorial);
+    }
+
+    /**
+     * Pairs and batches alternate on the same workspace, so each kernel finds
+     * its buffers as it left them and the alignment keeps its own.
+     */
+    @Test
+    void concordaComOKernelEscalar() {
+        Random aleatorio = new Random(17);
+        Workspace workspace = Workspace.daThreadAtual();
+        for (int caso = 0; caso < 300; caso++) {
+            int remocao = 1 + aleatorio.nextInt(3);
+            int insercao = 1 + aleatorio.nextInt(3);
+            int substituicao = 1 + aleatorio.nextInt(4);
+            int troca = Math.max((remocao + insercao + 1) / 2, 1 + aleatorio.nextInt(4));
+            DamerauLevenshtein distancia = new DamerauLevenshtein(remocao, insercao, substituicao, troca);
+            int alfabeto = 2 + aleatorio.nextInt(20);
+
+            String a = aleatoria(aleatorio, 16 + aleatorio.nextInt(300), alfabeto);
+            String b = aleatoria(aleatorio, 16 + aleatorio.nextInt(300), alfabeto);
+            assertEquals(distancia.calcularDistanciaEmEspacoLinear(a, b),
+                    distancia.calcularDistancia(a, b, workspace));
+
+            String consulta = aleatoria(aleatorio, 1 + aleatorio.nextInt(64), alfabeto);
+            List<String> candidatos = new ArrayList<String>();
+            for (int c = 0; c < 40; c++) {
+                candidatos.add(aleatoria(aleatorio, aleatorio.nextInt(80), alfabeto));
+            }
+            int[] resultado = new int[candidatos.size()];
+            distancia.calcularDistancias(consulta, candidatos, resultado, workspace);
+            for (int c = 0; c < candidatos.size(); c++) {
+                assertEquals(distancia.calcularDistanciaEmEspacoLinear(consulta, candidatos.get(c)),
+                        resultado[c]);
+            }
+
+            assertEquals(distancia.calcularAlinhamentoLowranceWagner(a, b, workspace).custo(),
+                    distancia.calcularAlinhamentoLowranceWagner(a, b, new Workspace()).custo());
+        }
+    }
+
+    private static String aleatoria(Random aleatorio, int tamanho, int alfabeto) {
+        StringBuilder texto = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            texto.append((char) ('a' + aleatorio.nextInt(alfabeto)));
+        }
+        return texto.toString();
+    }
+}